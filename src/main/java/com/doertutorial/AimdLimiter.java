@@ -0,0 +1,161 @@
+package com.doertutorial;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit of one external service, adjusted by additive increase / multiplicative decrease.
+ * <p>
+ * Every call that completes in time while the limit is in use raises the limit by {@code 1/limit},
+ * i.e. by one per limit's worth of calls. A failure or a call slower than {@code latencyThreshold} multiplies
+ * the limit by {@code backoffRatio}, at most once per round of calls: calls started before the last decrease
+ * do not decrease it again. Callers above the limit wait until a slot is free, on a fair lock.
+ */
+public class AimdLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private final List<Runnable> releaseListeners = new CopyOnWriteArrayList<>();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long lastDecreaseAt;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio,
+                       LongSupplier nanoTime) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.nanoTime = nanoTime;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * Waits for a free slot.
+     *
+     * @return the permit, or null if no slot was freed within the timeout
+     */
+    public Permit acquire(Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= getLimit()) {
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return new Permit(nanoTime.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the listener every time a slot is released, on the releasing thread and outside the lock.
+     */
+    public void addReleaseListener(Runnable listener) {
+        releaseListeners.add(listener);
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long startedAt, boolean succeeded) {
+        lock.lock();
+        try {
+            adjust(startedAt, succeeded);
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Runnable listener : releaseListeners) {
+            listener.run();
+        }
+    }
+
+    private void adjust(long startedAt, boolean succeeded) {
+        long now = nanoTime.getAsLong();
+        if (succeeded && now - startedAt <= latencyThresholdNanos) {
+            // Grow only when the limit is what holds calls back, not while it is far above the actual load.
+            if (inFlight >= (int) limit / 2 || waiting > 0) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        } else if (startedAt - lastDecreaseAt >= 0) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseAt = now;
+        }
+    }
+
+    /**
+     * Slot taken by one call. Exactly one of the methods must be called when the call is over.
+     */
+    public final class Permit {
+        private final long startedAt;
+        private boolean released;
+
+        private Permit(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        public void onSuccess() {
+            release(true);
+        }
+
+        /**
+         * The service failed or timed out, which is a sign of overload.
+         */
+        public void onFailure() {
+            release(false);
+        }
+
+        private synchronized void release(boolean succeeded) {
+            if (!released) {
+                released = true;
+                AimdLimiter.this.release(startedAt, succeeded);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.doertutorial;
+
+import io.agroal.api.AgroalPoolInterceptor;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.sql.Connection;
+import java.sql.SQLClientInfoException;
+
+/**
+ * Sets {@code application_name} of every new connection of the datasource to {@link PgListener#APPLICATION_NAME},
+ * so notifications sent by database triggers carry the same node id as the ones sent by the application.
+ */
+@ApplicationScoped
+public class ApplicationNameInterceptor implements AgroalPoolInterceptor {
+
+    @Override
+    public void onConnectionCreate(Connection connection) {
+        try {
+            connection.setClientInfo("ApplicationName", PgListener.APPLICATION_NAME);
+        } catch (SQLClientInfoException e) {
+            throw new IllegalStateException("Failed to set application_name", e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import com.doer.Task;
+import com.doertutorial.Bank.Check;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.doertutorial.OrderProcessor.GOODS_RESERVED;
+import static com.doertutorial.OrderProcessor.ORDER_PAID;
+import static com.doertutorial.OrderProcessor.PAYMENT_REQUESTED;
+
+/**
+ * Asynchronous execution path of {@link OrderProcessor#payOrder}, enabled by {@code doertutorial.async-payments.enabled}.
+ * <p>
+ * The step only moves the task to {@link OrderProcessor#PAYMENT_REQUESTED}, which no step accepts, and the payment
+ * request is sent after the step has been committed. No thread waits for the bank: the response completes the step
+ * by storing the transaction id and moving the task to {@link OrderProcessor#ORDER_PAID}. A failed request puts the
+ * task back to {@link OrderProcessor#GOODS_RESERVED} as failing, so Doer retries {@code payOrder} by its
+ * {@code @OnException} schedule. Requests left without response (e.g. the application was restarted) are given
+ * back to Doer the same way after {@code doertutorial.async-payments.timeout}. A request refused for lack of a free
+ * slot parks the task instead, see {@link TaskParking}.
+ * <p>
+ * Doer ends the failing streak of the task when the step returns, so the {@code failing_since} of a retried payment
+ * is written back once the step has been committed, and failing again keeps it. {@code payOrder} then moves
+ * the task to {@link OrderProcessor#PAYMENT_FAILED} once {@link OrderProcessor#PAYMENT_RETRY_DURING} has passed.
+ * <p>
+ * A response only completes a task still in {@link OrderProcessor#PAYMENT_REQUESTED}. Once the task has been
+ * given back, the retried {@code payOrder} charges again, so a late transaction is cancelled at the bank.
+ */
+@ApplicationScoped
+public class AsyncPayments {
+    static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MS = 1000;
+
+    @Inject
+    Bank bank;
+    @Inject
+    OrderDao orderDao;
+    @Inject
+    TaskDao taskDao;
+    @Inject
+    DoerService doerService;
+    @Inject
+    TransactionHooks transactionHooks;
+    @ConfigProperty(name = "doertutorial.async-payments.timeout", defaultValue = "10m")
+    Duration timeout;
+
+    // Responses are handled off the http client threads, handling them involves a database transaction.
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("async-payments-", 0).factory());
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Sends the payment request once the current transaction commits, so the response always finds the task
+     * in {@link OrderProcessor#PAYMENT_REQUESTED}.
+     */
+    public void requestPaymentAfterCommit(Task task, Order order) {
+        long taskId = task.getId();
+        Instant failingSince = task.getFailingSince();
+        Order request = order.copy();
+        transactionHooks.afterCommit(() -> {
+            if (failingSince != null) {
+                inTransaction(() -> taskDao.restoreFailingSince(taskId, failingSince, PAYMENT_REQUESTED));
+            }
+            requestPayment(taskId, request);
+        });
+    }
+
+    void requestPayment(long taskId, Order order) {
+        try {
+            bank.processPaymentAsync(order)
+                    .whenCompleteAsync((check, error) -> {
+                        if (error == null) {
+                            completeStep(taskId, check, 1);
+                        } else if (error instanceof OutboundBusyException
+                                || error instanceof CompletionException && error.getCause() instanceof OutboundBusyException) {
+                            parkStep(taskId, 1);
+                        } else {
+                            Log.warnf("Payment request for task %d failed. %s", taskId, error.getMessage());
+                            failStep(taskId, 1);
+                        }
+                    }, executor);
+        } catch (OutboundBusyException e) {
+            executor.execute(() -> parkStep(taskId, 1));
+        } catch (RuntimeException e) {
+            Log.warnf("Payment request for task %d was not sent. %s", taskId, e.getMessage());
+            executor.execute(() -> failStep(taskId, 1));
+        }
+    }
+
+    void completeStep(long taskId, Check check, int attempt) {
+        Boolean completed = inTransaction(() -> {
+            if (!taskDao.updateStatus(taskId, ORDER_PAID, false, PAYMENT_REQUESTED)) {
+                return false;
+            }
+            Order order = orderDao.findOrderByTaskId(taskId);
+            order.setPaymentTransactionId(check.transactionId());
+            orderDao.updateChangedFields(order);
+            return true;
+        });
+        if (Boolean.TRUE.equals(completed)) {
+            doerService.triggerTaskReloadFromDb(taskId);
+        } else if (attempt < MAX_ATTEMPTS) {
+            delayed().execute(() -> completeStep(taskId, check, attempt + 1));
+        } else if (completed != null) {
+            // Given back to Doer meanwhile, payOrder has sent or will send another payment.
+            Log.warnf("Payment %s for task %d arrived late, cancelling it.", check.transactionId(), taskId);
+            cancelPayment(taskId, check, 1);
+        } else {
+            Log.errorf("Payment %s for task %d was not stored.", check.transactionId(), taskId);
+        }
+    }
+
+    void cancelPayment(long taskId, Check check, int attempt) {
+        try {
+            bank.cancelPayment(check);
+        } catch (RuntimeException e) {
+            if (attempt < MAX_ATTEMPTS) {
+                delayed().execute(() -> cancelPayment(taskId, check, attempt + 1));
+            } else {
+                Log.errorf(e, "Late payment %s for task %d was not cancelled, it needs a refund.",
+                        check.transactionId(), taskId);
+            }
+        }
+    }
+
+    /**
+     * Keeps the {@code failing_since} of earlier attempts, so the retries of the payment end after
+     * {@link OrderProcessor#PAYMENT_RETRY_DURING} from the first failure.
+     */
+    void failStep(long taskId, int attempt) {
+        Boolean failed = inTransaction(() -> taskDao.updateStatus(taskId, GOODS_RESERVED, true, PAYMENT_REQUESTED));
+        if (Boolean.TRUE.equals(failed)) {
+            doerService.triggerTaskReloadFromDb(taskId);
+        } else if (attempt < MAX_ATTEMPTS) {
+            delayed().execute(() -> failStep(taskId, attempt + 1));
+        }
+    }
+
+    /**
+     * Parks the task like {@link TaskParking#parkBusy} does for the synchronous step: the bank had no free slot,
+     * which is no reason to fail the payment.
+     */
+    void parkStep(long taskId, int attempt) {
+        String parked = TaskParking.parkedPrefix(GuardedBank.SERVICE) + GOODS_RESERVED;
+        Boolean moved = inTransaction(() -> taskDao.updateStatus(taskId, parked, false, PAYMENT_REQUESTED));
+        if (moved == null && attempt < MAX_ATTEMPTS) {
+            delayed().execute(() -> parkStep(taskId, attempt + 1));
+        }
+    }
+
+    @Scheduled(every = "1m", delayed = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void giveBackStaleRequests() throws SQLException {
+        List<Long> taskIds = taskDao.failStaleTasks(PAYMENT_REQUESTED, timeout, GOODS_RESERVED);
+        for (Long taskId : taskIds) {
+            Log.warnf("No payment response for task %d within %s", taskId, timeout);
+            doerService.triggerTaskReloadFromDb(taskId);
+        }
+    }
+
+    private Executor delayed() {
+        // The step transaction may still be committing, or Doer may be running the task.
+        return CompletableFuture.delayedExecutor(RETRY_DELAY_MS, TimeUnit.MILLISECONDS, executor);
+    }
+
+    /**
+     * @return null if the transaction failed
+     */
+    private static Boolean inTransaction(TransactionalWork work) {
+        try {
+            return QuarkusTransaction.requiringNew().call(work::run);
+        } catch (Exception e) {
+            Log.warnf(e, "Failed to store payment outcome");
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface TransactionalWork {
+        boolean run() throws SQLException;
+    }
+}
@@ -4,6 +4,9 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
 @RegisterRestClient(configKey = "bankapi")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
@@ -12,10 +15,27 @@ public interface Bank {
     @Path("bank/processPayment")
     Check processPayment(Order order);
 
+    @POST
+    @Path("bank/processPayment")
+    CompletionStage<Check> processPaymentAsync(Order order);
+
+    /**
+     * Bulk variant of {@link #processPayment}: one result per order, in order.
+     */
+    @POST
+    @Path("bank/processPayments")
+    List<CheckResult> processPayments(List<Order> orders);
+
     @POST
     @Path("bank/cancelPayment")
     void cancelPayment(Check check);
 
     record Check(String transactionId) {
     }
+
+    /**
+     * Either the transaction id of the payment or the reason why the order was not paid.
+     */
+    record CheckResult(String transactionId, String error) {
+    }
 }
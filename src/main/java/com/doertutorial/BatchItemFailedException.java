@@ -0,0 +1,10 @@
+package com.doertutorial;
+
+/**
+ * Thrown to the caller whose item of a bulk call was rejected by the external service.
+ */
+public class BatchItemFailedException extends RuntimeException {
+    public BatchItemFailedException(String service, String error) {
+        super(service + " rejected the item: " + error);
+    }
+}
@@ -1,24 +1,52 @@
 package com.doertutorial;
 
+import jakarta.ws.rs.Path;
 import jakarta.ws.rs.client.ClientRequestContext;
 import jakarta.ws.rs.client.ClientResponseContext;
 import jakarta.ws.rs.client.ClientResponseFilter;
 import jakarta.ws.rs.ext.Provider;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 
 /**
  * In this filter, we set custom http headers into Response to deliver Request's URI and METHOD values
- * to WebApplicationException handlers.
+ * to WebApplicationException handlers, along with the URI template of the invoked rest client method.
  */
 @Provider
 public class CatchUriFilter implements ClientResponseFilter {
+    static final String INVOKED_METHOD = "org.eclipse.microprofile.rest.client.invokedMethod";
+
     @Override
     public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
         if (responseContext.getStatus() >= 400) {
             var headers = responseContext.getHeaders();
             headers.add(ExtraJsonAugmenter.DOERTUTORIAL_URI, "" + requestContext.getUri());
             headers.add(ExtraJsonAugmenter.DOERTUTORIAL_METHOD, requestContext.getMethod());
+            String template = uriTemplate(requestContext.getProperty(INVOKED_METHOD));
+            if (template != null) {
+                headers.add(ExtraJsonAugmenter.DOERTUTORIAL_URI_TEMPLATE, template);
+            }
+        }
+    }
+
+    /**
+     * Joins the {@code @Path} values of the rest client interface and method, e.g. {@code warehouse/reserve}.
+     */
+    static String uriTemplate(Object invokedMethod) {
+        if (!(invokedMethod instanceof Method method)) {
+            return null;
+        }
+        Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+        Path methodPath = method.getAnnotation(Path.class);
+        if (classPath == null && methodPath == null) {
+            return null;
+        }
+        String prefix = classPath == null ? "" : classPath.value();
+        String suffix = methodPath == null ? "" : methodPath.value();
+        if (prefix.isEmpty() || suffix.isEmpty()) {
+            return prefix + suffix;
         }
+        return prefix.replaceAll("/+$", "") + "/" + suffix.replaceAll("^/+", "");
     }
 }
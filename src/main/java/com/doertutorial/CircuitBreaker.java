@@ -0,0 +1,114 @@
+package com.doertutorial;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker of one external service.
+ * <p>
+ * After {@code failureThreshold} failures in a row the breaker opens and refuses calls for {@code openDuration}.
+ * Then it half-opens and lets {@code probes} calls through: a successful probe closes the breaker,
+ * a failed one opens it again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    public record Transition(String service, State from, State to) {
+    }
+
+    private final String service;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int probes;
+    private final LongSupplier nanoTime;
+    private final Consumer<Transition> onTransition;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private int probesInFlight;
+
+    public CircuitBreaker(String service, int failureThreshold, Duration openDuration, int probes,
+                          LongSupplier nanoTime, Consumer<Transition> onTransition) {
+        this.service = service;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.nanoTime = nanoTime;
+        this.onTransition = onTransition;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    /**
+     * Returns the current state, half-opening the breaker if it has been open long enough.
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            probesInFlight = 0;
+            moveTo(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    /**
+     * Tells whether {@link #tryAcquire()} would let a call through now.
+     */
+    public synchronized boolean permits() {
+        return switch (state()) {
+            case CLOSED -> true;
+            case HALF_OPEN -> probesInFlight < probes;
+            case OPEN -> false;
+        };
+    }
+
+    /**
+     * Takes the permission to make a call. Every permitted call must be followed by
+     * {@link #onSuccess()}, {@link #onFailure()} or, if the call was not made after all, {@link #onNotCalled()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!permits()) {
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        failures = 0;
+        if (state == State.HALF_OPEN) {
+            moveTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || (state == State.CLOSED && ++failures >= failureThreshold)) {
+            failures = 0;
+            openedAt = nanoTime.getAsLong();
+            moveTo(State.OPEN);
+        }
+    }
+
+    public synchronized void onNotCalled() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    private void moveTo(State newState) {
+        State previous = state;
+        state = newState;
+        onTransition.accept(new Transition(service, previous, newState));
+    }
+}
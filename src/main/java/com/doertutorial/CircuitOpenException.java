@@ -0,0 +1,17 @@
+package com.doertutorial;
+
+/**
+ * Thrown instead of calling an external service while its {@link CircuitBreaker} refuses calls.
+ */
+public class CircuitOpenException extends RuntimeException {
+    private final String service;
+
+    public CircuitOpenException(String service) {
+        super("Circuit breaker of " + service + " is open");
+        this.service = service;
+    }
+
+    public String getService() {
+        return service;
+    }
+}
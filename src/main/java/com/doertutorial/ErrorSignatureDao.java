@@ -0,0 +1,213 @@
+package com.doertutorial;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Counts occurrences of distinct external service errors in {@code error_signatures}.
+ * <p>
+ * Failing steps do not write the counters. Occurrences of known signatures are added up in memory and flushed
+ * every few seconds in one transaction, so an outage neither queues every failing step on the row of its
+ * signature nor takes a second connection per failure. Only the first occurrence of a signature on this instance
+ * stores it, in a transaction of its own because the failing step transaction rolls back.
+ * <p>
+ * Occurrence numbers are the stored count plus the occurrences of this instance since its last flush, so instances
+ * may hand out the same number meanwhile. Occurrences not flushed yet are lost if the application is killed.
+ */
+@ApplicationScoped
+public class ErrorSignatureDao {
+    static final int MAX_SIGNATURES = 10000;
+
+    @Inject
+    DataSource ds;
+    @Inject
+    TransactionHooks transactionHooks;
+
+    private final Map<String, Signature> signatures = new ConcurrentHashMap<>();
+
+    /**
+     * Counts an occurrence of the signature, storing the signature on its first occurrence on this instance.
+     *
+     * @param response json document stored with a new signature, only called when the signature is new
+     */
+    public Occurrence recordOccurrence(String fingerprint, String method, String uriTemplate, int status,
+                                       Supplier<String> response) throws SQLException {
+        Signature signature = signatures.get(fingerprint);
+        long occurrence = signature == null ? 0 : signature.record();
+        if (occurrence > 0) {
+            return new Occurrence(signature.id, occurrence);
+        }
+        Occurrence stored = storeOccurrence(fingerprint, method, uriTemplate, status, response);
+        signatures.put(fingerprint, new Signature(stored.signatureId(), stored.occurrence()));
+        return stored;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    Occurrence storeOccurrence(String fingerprint, String method, String uriTemplate, int status,
+                               Supplier<String> response) throws SQLException {
+        String update = "UPDATE error_signatures SET occurrences = occurrences + 1, last_seen = now() " +
+                "WHERE fingerprint = ? RETURNING id, occurrences";
+        try (Connection con = ds.getConnection()) {
+            try (PreparedStatement pst = con.prepareStatement(update)) {
+                pst.setString(1, fingerprint);
+                try (ResultSet rs = pst.executeQuery()) {
+                    if (rs.next()) {
+                        return new Occurrence(rs.getLong("id"), rs.getLong("occurrences"));
+                    }
+                }
+            }
+            // Another instance may insert the same signature meanwhile
+            String insert = "INSERT INTO error_signatures (fingerprint, method, uri_template, status, response) " +
+                    "VALUES (?, ?, ?, ?, ?::JSONB) " +
+                    "ON CONFLICT (fingerprint) DO UPDATE SET occurrences = error_signatures.occurrences + 1, " +
+                    "last_seen = now() " +
+                    "RETURNING id, occurrences";
+            try (PreparedStatement pst = con.prepareStatement(insert)) {
+                pst.setString(1, fingerprint);
+                pst.setString(2, method);
+                pst.setString(3, uriTemplate);
+                pst.setInt(4, status);
+                pst.setString(5, response.get());
+                try (ResultSet rs = pst.executeQuery()) {
+                    rs.next();
+                    return new Occurrence(rs.getLong("id"), rs.getLong("occurrences"));
+                }
+            }
+        }
+    }
+
+    @Scheduled(every = "5s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    synchronized void flushOccurrences() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            Log.warnf(e, "Failed to store error signature occurrences, retrying with the next flush");
+        }
+    }
+
+    public void onApplicationShutdown(@Observes ShutdownEvent shutdown) {
+        flushOccurrences();
+    }
+
+    /**
+     * Adds the occurrences counted since the last flush to the stored counts. They are taken off the pending
+     * counts once the transaction commits, so a failed flush is retried with the next one.
+     */
+    @Transactional
+    void flush() throws SQLException {
+        if (signatures.size() > MAX_SIGNATURES) {
+            signatures.values().removeIf(Signature::retireIfIdle);
+        }
+        List<Signature> flushed = new ArrayList<>();
+        for (Signature signature : signatures.values()) {
+            if (signature.pending() > 0) {
+                flushed.add(signature);
+            }
+        }
+        if (flushed.isEmpty()) {
+            return;
+        }
+        flushed.sort(Comparator.comparingLong(signature -> signature.id));
+        Long[] ids = new Long[flushed.size()];
+        Long[] counts = new Long[flushed.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = flushed.get(i).id;
+            counts[i] = flushed.get(i).pending();
+        }
+        // Rows are locked in id order, so instances flushing the same signatures cannot deadlock.
+        String lock = "SELECT id FROM error_signatures WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+        String update = "UPDATE error_signatures s SET occurrences = s.occurrences + v.count, last_seen = now() " +
+                "FROM unnest(?, ?) AS v(id, count) WHERE s.id = v.id RETURNING s.id, s.occurrences";
+        Map<Long, Long> stored = new HashMap<>();
+        try (Connection con = ds.getConnection()) {
+            try (PreparedStatement pst = con.prepareStatement(lock)) {
+                pst.setArray(1, con.createArrayOf("bigint", ids));
+                pst.executeQuery().close();
+            }
+            try (PreparedStatement pst = con.prepareStatement(update)) {
+                pst.setArray(1, con.createArrayOf("bigint", ids));
+                pst.setArray(2, con.createArrayOf("bigint", counts));
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        stored.put(rs.getLong("id"), rs.getLong("occurrences"));
+                    }
+                }
+            }
+        }
+        transactionHooks.afterCommit(() -> {
+            for (int i = 0; i < ids.length; i++) {
+                Long occurrences = stored.get(ids[i]);
+                if (occurrences != null) {
+                    flushed.get(i).flushed(counts[i], occurrences);
+                } else {
+                    // Deleted meanwhile, the next occurrence stores it again
+                    flushed.get(i).retire();
+                    signatures.values().remove(flushed.get(i));
+                }
+            }
+        });
+    }
+
+    public record Occurrence(long signatureId, long occurrence) {
+    }
+
+    private static final class Signature {
+        final long id;
+        // Stored count as of the last flush of this instance
+        private long stored;
+        private long pending;
+        private boolean retired;
+
+        Signature(long id, long stored) {
+            this.id = id;
+            this.stored = stored;
+        }
+
+        /**
+         * @return the occurrence number, or 0 if the signature was retired and must be stored again
+         */
+        synchronized long record() {
+            if (retired) {
+                return 0;
+            }
+            pending++;
+            return stored + pending;
+        }
+
+        synchronized long pending() {
+            return pending;
+        }
+
+        synchronized void flushed(long count, long occurrences) {
+            pending -= count;
+            stored = occurrences;
+        }
+
+        synchronized boolean retireIfIdle() {
+            retired = retired || pending == 0;
+            return retired;
+        }
+
+        synchronized void retire() {
+            retired = true;
+        }
+    }
+}
@@ -4,30 +4,98 @@ import com.doer.DoerExtraJson;
 import com.doer.Task;
 import io.quarkus.logging.Log;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
-import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
 
+/**
+ * Records error responses of external services for the task log.
+ * <p>
+ * Responses are fingerprinted by method, URI template, status and body, and each distinct one is stored once in
+ * {@code error_signatures}. The task log only gets the status, the signature id and the occurrence number,
+ * so an outage does not write the same headers and body for every failing task.
+ */
 @ApplicationScoped
 public class ExtraJsonAugmenter {
     public static final String DOERTUTORIAL_URI = "_doertutorial_uri";
+    public static final String DOERTUTORIAL_URI_TEMPLATE = "_doertutorial_uri_template";
     public static final String DOERTUTORIAL_METHOD = "_doertutorial_method";
+    public static final String DOERTUTORIAL_DURATION_NANOS = "_doertutorial_duration_nanos";
+    static final int MAX_BODY_BYTES = 2048;
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "[0-9]+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    @Inject
+    ErrorSignatureDao errorSignatureDao;
+    @Inject
+    OutboundLatency outboundLatency;
 
     @DoerExtraJson
     public void appendResponseInfo(Task task, WebApplicationException ex, JsonObjectBuilder extraJson) {
         Response response = ex.getResponse();
+        String method = response.getHeaderString(DOERTUTORIAL_METHOD);
+        String uri = response.getHeaderString(DOERTUTORIAL_URI);
+        String uriTemplate = response.getHeaderString(DOERTUTORIAL_URI_TEMPLATE);
+        if (uriTemplate == null && uri != null) {
+            uriTemplate = uriTemplate(uri);
+        }
+        int status = response.getStatus();
+        byte[] body = readBodyPrefix(response);
+        String fingerprint = fingerprint(method, uriTemplate, status, body);
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("status", status);
+        try {
+            ErrorSignatureDao.Occurrence occurrence = errorSignatureDao.recordOccurrence(fingerprint, method, uriTemplate,
+                    status, () -> responseInfo(response, body).toString());
+            json.add("signature_id", occurrence.signatureId())
+                    .add("occurrence", occurrence.occurrence());
+        } catch (Exception e) {
+            Log.warn("Failed to record error signature. Logging the response.", e);
+            json = Json.createObjectBuilder(responseInfo(response, body));
+        }
+        extraJson.add("response", json);
+        appendLatency(response, method, uriTemplate, status, extraJson);
+    }
+
+    /**
+     * Adds the duration of slow calls, with the current percentiles of the endpoint for comparison.
+     */
+    private void appendLatency(Response response, String method, String uriTemplate, int status,
+                               JsonObjectBuilder extraJson) {
+        String duration = response.getHeaderString(DOERTUTORIAL_DURATION_NANOS);
+        if (duration == null) {
+            return;
+        }
+        long nanos = Long.parseLong(duration);
+        if (outboundLatency.isSlow(nanos)) {
+            extraJson.add("latency", outboundLatency.describe(uriTemplate, method, status, nanos));
+        }
+    }
+
+    static JsonObject responseInfo(Response response, byte[] body) {
         JsonObjectBuilder json = Json.createObjectBuilder();
         appendRequestInfo(response, json);
         json.add("status", response.getStatus());
         appendResponseHeaders(response, json);
         if (response.getMediaType() != null && response.getMediaType().isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
-            appendJsonBody(response, json);
+            appendJsonBody(body, json);
         }
-        extraJson.add("response", json);
+        return json.build();
     }
 
     private static void appendRequestInfo(Response response, JsonObjectBuilder json) {
@@ -47,6 +115,8 @@ public class ExtraJsonAugmenter {
             switch (name) {
                 case DOERTUTORIAL_METHOD:
                 case DOERTUTORIAL_URI:
+                case DOERTUTORIAL_URI_TEMPLATE:
+                case DOERTUTORIAL_DURATION_NANOS:
                     break;
                 default:
                     jsonHeaders.add(name, response.getHeaderString(name));
@@ -55,17 +125,74 @@ public class ExtraJsonAugmenter {
         json.add("headers", jsonHeaders);
     }
 
-    private static void appendJsonBody(Response response, JsonObjectBuilder json) {
-        response.bufferEntity();
+    private static void appendJsonBody(byte[] body, JsonObjectBuilder json) {
+        if (body == null) {
+            return;
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            Log.warnf("Too long error response. %s...", new String(body, 0, 500, StandardCharsets.UTF_8));
+            return;
+        }
         try {
-            String body = response.readEntity(String.class);
-            if (body.length() < 2048) {
-                json.add("json_body", Json.createReader(new StringReader(body)).readObject());
-            } else {
-                Log.warnf("Too long error response (%d). %s...", body.length(), body.substring(0, 500));
-            }
+            json.add("json_body", Json.createReader(new ByteArrayInputStream(body)).readObject());
         } catch (Exception e) {
             Log.warn("Can not parse error response. Skipping.", e);
         }
     }
+
+    /**
+     * Reads at most {@link #MAX_BODY_BYTES} + 1 bytes of the entity, so a longer body is detected without
+     * reading (or buffering) the rest of it.
+     *
+     * @return null if there is no readable entity
+     */
+    static byte[] readBodyPrefix(Response response) {
+        try {
+            if (!response.hasEntity()) {
+                return null;
+            }
+            try (InputStream in = response.readEntity(InputStream.class)) {
+                return in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.warn("Can not read error response. Skipping.", e);
+            return null;
+        }
+    }
+
+    static String fingerprint(String method, String uriTemplate, int status, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((method + ' ' + uriTemplate + ' ' + status + '\n').getBytes(StandardCharsets.UTF_8));
+            if (body != null) {
+                digest.update(body);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Path of the URI with numeric and UUID segments replaced by {@code {id}}, for requests made without
+     * a known template.
+     */
+    static String uriTemplate(String uri) {
+        String path;
+        try {
+            path = URI.create(uri).getRawPath();
+        } catch (IllegalArgumentException e) {
+            return uri;
+        }
+        if (path == null) {
+            return uri;
+        }
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+            }
+        }
+        return String.join("/", segments);
+    }
 }
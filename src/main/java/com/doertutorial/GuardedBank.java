@@ -0,0 +1,69 @@
+package com.doertutorial;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The {@link Bank} used by the application: the rest client wrapped into {@link OutboundGuard}.
+ * Being a selected alternative, it wins over the rest client bean wherever injected without {@code @RestClient}.
+ * With {@code doertutorial.outbound.bankapi.batch.enabled} payments are coalesced into bulk calls.
+ */
+@ApplicationScoped
+@Alternative
+@Priority(1)
+public class GuardedBank implements Bank {
+    static final String SERVICE = "bankapi";
+
+    @Inject
+    @RestClient
+    Bank bank;
+    @Inject
+    OutboundGuard guard;
+
+    private MicroBatcher<Order, CheckResult> payments;
+
+    @PostConstruct
+    void init() {
+        payments = guard.batcher(SERVICE, bank::processPayments);
+    }
+
+    @Override
+    public Check processPayment(Order order) {
+        if (payments != null) {
+            return toCheck(MicroBatcher.await(payments.submit(order)));
+        }
+        return guard.call(SERVICE, () -> bank.processPayment(order));
+    }
+
+    @Override
+    public CompletionStage<Check> processPaymentAsync(Order order) {
+        if (payments != null) {
+            return payments.submit(order).thenApply(GuardedBank::toCheck);
+        }
+        return guard.callAsync(SERVICE, () -> bank.processPaymentAsync(order));
+    }
+
+    @Override
+    public List<CheckResult> processPayments(List<Order> orders) {
+        return guard.call(SERVICE, () -> bank.processPayments(orders));
+    }
+
+    @Override
+    public void cancelPayment(Check check) {
+        guard.run(SERVICE, () -> bank.cancelPayment(check));
+    }
+
+    private static Check toCheck(CheckResult result) {
+        if (result.error() != null) {
+            throw new BatchItemFailedException(SERVICE, result.error());
+        }
+        return new Check(result.transactionId());
+    }
+}
@@ -0,0 +1,79 @@
+package com.doertutorial;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The {@link Warehouse} used by the application: the rest client wrapped into {@link OutboundGuard}.
+ * Being a selected alternative, it wins over the rest client bean wherever injected without {@code @RestClient}.
+ * With {@code doertutorial.outbound.warehouse.batch.enabled} reservations are coalesced into bulk calls.
+ */
+@ApplicationScoped
+@Alternative
+@Priority(1)
+public class GuardedWarehouse implements Warehouse {
+    static final String SERVICE = "warehouse";
+
+    @Inject
+    @RestClient
+    Warehouse warehouse;
+    @Inject
+    OutboundGuard guard;
+
+    private MicroBatcher<Order, ReservationResult> reservations;
+
+    @PostConstruct
+    void init() {
+        reservations = guard.batcher(SERVICE, warehouse::reserveGoodsBatch);
+    }
+
+    @Override
+    public Reservation reserveGoods(Order order) {
+        if (reservations != null) {
+            return toReservation(MicroBatcher.await(reservations.submit(order)));
+        }
+        return guard.call(SERVICE, () -> warehouse.reserveGoods(order));
+    }
+
+    @Override
+    public CompletionStage<Reservation> reserveGoodsAsync(Order order) {
+        if (reservations != null) {
+            return reservations.submit(order).thenApply(GuardedWarehouse::toReservation);
+        }
+        return guard.callAsync(SERVICE, () -> warehouse.reserveGoodsAsync(order));
+    }
+
+    @Override
+    public List<ReservationResult> reserveGoodsBatch(List<Order> orders) {
+        return guard.call(SERVICE, () -> warehouse.reserveGoodsBatch(orders));
+    }
+
+    @Override
+    public TrackId shipTheOrder(Order order) {
+        return guard.call(SERVICE, () -> warehouse.shipTheOrder(order));
+    }
+
+    @Override
+    public CompletionStage<TrackId> shipTheOrderAsync(Order order) {
+        return guard.callAsync(SERVICE, () -> warehouse.shipTheOrderAsync(order));
+    }
+
+    @Override
+    public void cancelReservation(Reservation reservation) {
+        guard.run(SERVICE, () -> warehouse.cancelReservation(reservation));
+    }
+
+    private static Reservation toReservation(ReservationResult result) {
+        if (result.error() != null) {
+            throw new BatchItemFailedException(SERVICE, result.error());
+        }
+        return new Reservation(result.token());
+    }
+}
@@ -0,0 +1,164 @@
+package com.doertutorial;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Draws a {@link WorkflowHeatmap.Heatmap} as SVG, without Graphviz.
+ * <p>
+ * Nodes are laid out top-down in ranks of their distance from the entry statuses. Steps are filled from white
+ * to red by the worse of their p95 relative to the slowest step and their error rate, statuses by their
+ * queue depth relative to the deepest queue, and edges are drawn wider the more tasks move along them.
+ */
+final class HeatmapSvg {
+    static final int COLUMN = 190;
+    static final int ROW = 64;
+    static final int MARGIN = 24;
+    static final int STEP_WIDTH = 170;
+    static final int STEP_HEIGHT = 34;
+
+    private HeatmapSvg() {
+    }
+
+    static String render(WorkflowHeatmap.Heatmap heatmap) {
+        Map<String, Integer> ranks = ranks(heatmap);
+        Map<Integer, List<String>> rows = new TreeMap<>();
+        heatmap.nodes().forEach(stats -> rows.computeIfAbsent(ranks.get(stats.node().id()), rank -> new ArrayList<>())
+                .add(stats.node().id()));
+        int columns = rows.values().stream().mapToInt(List::size).max().orElse(1);
+        int width = 2 * MARGIN + columns * COLUMN;
+        int height = 2 * MARGIN + rows.size() * ROW;
+
+        Map<String, double[]> positions = new HashMap<>();
+        int y = 0;
+        for (List<String> row : rows.values()) {
+            double offset = MARGIN + (columns - row.size()) * COLUMN / 2.0;
+            for (int i = 0; i < row.size(); i++) {
+                positions.put(row.get(i), new double[]{offset + (i + 0.5) * COLUMN, MARGIN + (y + 0.5) * ROW});
+            }
+            y++;
+        }
+
+        double slowest = heatmap.nodes().stream().filter(stats -> stats.p95Millis() != null)
+                .mapToDouble(WorkflowHeatmap.NodeStats::p95Millis).max().orElse(0);
+        long deepest = heatmap.nodes().stream().filter(stats -> stats.queueDepth() != null)
+                .mapToLong(WorkflowHeatmap.NodeStats::queueDepth).max().orElse(0);
+        double busiest = heatmap.edges().stream().mapToDouble(WorkflowHeatmap.EdgeStats::perMinute).max().orElse(0);
+
+        StringBuilder svg = new StringBuilder(16 * 1024);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+                .append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" font-family=\"Helvetica,sans-Serif\" font-size=\"10\">\n")
+                .append("<title>Workflow over the last ").append(escape(heatmap.window().toString())).append("</title>\n");
+        for (WorkflowHeatmap.EdgeStats stats : heatmap.edges()) {
+            double[] from = positions.get(stats.edge().from());
+            double[] to = positions.get(stats.edge().to());
+            if (from == null || to == null) {
+                continue;
+            }
+            double strokeWidth = 0.8 + (busiest == 0 ? 0 : 4 * stats.perMinute() / busiest);
+            svg.append("<line x1=\"").append(format(from[0])).append("\" y1=\"").append(format(from[1]))
+                    .append("\" x2=\"").append(format(to[0])).append("\" y2=\"").append(format(to[1]))
+                    .append("\" stroke=\"#6c757d\" stroke-width=\"").append(format(strokeWidth)).append('"')
+                    .append(stats.edge().tooltip() != null ? " stroke-dasharray=\"4 3\"" : "").append(">")
+                    .append("<title>").append(format(stats.perMinute())).append("/min")
+                    .append(stats.edge().tooltip() != null ? " " + escape(stats.edge().tooltip()) : "")
+                    .append("</title></line>\n");
+        }
+        for (WorkflowHeatmap.NodeStats stats : heatmap.nodes()) {
+            double[] position = positions.get(stats.node().id());
+            switch (stats.node().kind()) {
+                case STEP -> step(svg, stats, position, slowest);
+                case STATUS -> status(svg, stats, position, deepest);
+                case END -> svg.append("<circle cx=\"").append(format(position[0])).append("\" cy=\"")
+                        .append(format(position[1])).append("\" r=\"6\" fill=\"#dc3545\"><title>")
+                        .append(format(stats.perMinute())).append("/min finished</title></circle>\n");
+            }
+        }
+        return svg.append("</svg>\n").toString();
+    }
+
+    private static void step(StringBuilder svg, WorkflowHeatmap.NodeStats stats, double[] position, double slowest) {
+        double heat = Math.max(stats.errorRate(),
+                stats.p95Millis() == null || slowest == 0 ? 0 : stats.p95Millis() / slowest);
+        String details = format(stats.perMinute()) + "/min, " + format(100 * stats.errorRate()) + "% errors"
+                + (stats.p95Millis() == null ? "" : ", p95 " + format(stats.p95Millis()) + " ms");
+        svg.append("<g><title>").append(escape(stats.node().name())).append(": ").append(details).append("</title>")
+                .append("<rect x=\"").append(format(position[0] - STEP_WIDTH / 2.0)).append("\" y=\"")
+                .append(format(position[1] - STEP_HEIGHT / 2.0)).append("\" width=\"").append(STEP_WIDTH)
+                .append("\" height=\"").append(STEP_HEIGHT).append("\" fill=\"").append(color(heat))
+                .append("\" stroke=\"").append(stats.errors() > 0 ? "#dc3545" : "#343a40").append("\"/>")
+                .append("<text x=\"").append(format(position[0])).append("\" y=\"").append(format(position[1] - 3))
+                .append("\" text-anchor=\"middle\">").append(escape(stats.node().label())).append("</text>")
+                .append("<text x=\"").append(format(position[0])).append("\" y=\"").append(format(position[1] + 10))
+                .append("\" text-anchor=\"middle\" font-size=\"8\">").append(details).append("</text></g>\n");
+    }
+
+    private static void status(StringBuilder svg, WorkflowHeatmap.NodeStats stats, double[] position, long deepest) {
+        long depth = stats.queueDepth() == null ? 0 : stats.queueDepth();
+        String details = format(stats.perMinute()) + "/min in, " + depth + " waiting";
+        svg.append("<g><title>").append(escape(stats.node().name())).append(": ").append(details).append("</title>")
+                .append("<circle cx=\"").append(format(position[0])).append("\" cy=\"").append(format(position[1]))
+                .append("\" r=\"11\" fill=\"").append(color(deepest == 0 ? 0 : (double) depth / deepest))
+                .append("\" stroke=\"black\"/>")
+                .append("<text x=\"").append(format(position[0] + 16)).append("\" y=\"").append(format(position[1] + 3))
+                .append("\">").append(escape(stats.node().label())).append(" (").append(depth).append(")</text></g>\n");
+    }
+
+    /**
+     * Breadth-first distance from the nodes without incoming edges; nodes on cycles only get rank 0.
+     */
+    static Map<String, Integer> ranks(WorkflowHeatmap.Heatmap heatmap) {
+        Map<String, List<String>> next = new HashMap<>();
+        Map<String, Integer> incoming = new HashMap<>();
+        for (WorkflowHeatmap.EdgeStats stats : heatmap.edges()) {
+            next.computeIfAbsent(stats.edge().from(), id -> new ArrayList<>()).add(stats.edge().to());
+            incoming.merge(stats.edge().to(), 1, Integer::sum);
+        }
+        Map<String, Integer> ranks = new HashMap<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (WorkflowHeatmap.NodeStats stats : heatmap.nodes()) {
+            if (!incoming.containsKey(stats.node().id())) {
+                ranks.put(stats.node().id(), 0);
+                queue.add(stats.node().id());
+            }
+        }
+        while (!queue.isEmpty()) {
+            String id = queue.poll();
+            for (String to : next.getOrDefault(id, List.of())) {
+                if (!ranks.containsKey(to)) {
+                    ranks.put(to, ranks.get(id) + 1);
+                    queue.add(to);
+                }
+            }
+        }
+        heatmap.nodes().forEach(stats -> ranks.putIfAbsent(stats.node().id(), 0));
+        return ranks;
+    }
+
+    /**
+     * White for 0, {@code #dc3545} for 1.
+     */
+    static String color(double heat) {
+        double h = Math.min(1, Math.max(0, heat));
+        return String.format(Locale.ROOT, "#%02x%02x%02x",
+                Math.round(255 - h * (255 - 0xdc)), Math.round(255 - h * (255 - 0x35)), Math.round(255 - h * (255 - 0x45)));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,102 @@
+package com.doertutorial;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-item requests into bulk calls.
+ * <p>
+ * A batch is sent when it reaches {@code maxSize} items or {@code window} after its first item arrived,
+ * whichever comes first. The bulk call must return one result per item, in order. Results are handed back
+ * to the individual callers; if the bulk call itself fails, every caller of the batch gets its exception.
+ */
+public class MicroBatcher<I, O> {
+    private final int maxSize;
+    private final Duration window;
+    private final Function<List<I>, List<O>> bulkCall;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+
+    private List<Pending<I, O>> pending = new ArrayList<>();
+
+    /**
+     * @param timer    schedules the window flushes
+     * @param executor runs the bulk calls
+     */
+    public MicroBatcher(int maxSize, Duration window, Function<List<I>, List<O>> bulkCall,
+                        ScheduledExecutorService timer, Executor executor) {
+        this.maxSize = maxSize;
+        this.window = window;
+        this.bulkCall = bulkCall;
+        this.timer = timer;
+        this.executor = executor;
+    }
+
+    public synchronized CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        pending.add(new Pending<>(item, result));
+        if (pending.size() >= maxSize) {
+            flush();
+        } else if (pending.size() == 1) {
+            List<Pending<I, O>> batch = pending;
+            timer.schedule(() -> flushWindow(batch), window.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the result of {@link #submit}, rethrowing the failure of the item as is.
+     */
+    public static <O> O await(CompletableFuture<O> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void flushWindow(List<Pending<I, O>> batch) {
+        // The batch may have been sent already because it filled up.
+        if (pending == batch) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<Pending<I, O>> batch = pending;
+        pending = new ArrayList<>();
+        try {
+            executor.execute(() -> send(batch));
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+
+    private void send(List<Pending<I, O>> batch) {
+        try {
+            List<O> results = bulkCall.apply(batch.stream().map(Pending::item).toList());
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("Bulk call returned " + (results == null ? "no" : results.size())
+                        + " results for " + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+
+    private record Pending<I, O>(I item, CompletableFuture<O> result) {
+    }
+}
@@ -1,9 +1,37 @@
 package com.doertutorial;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 public class Order {
+    /**
+     * Order fields that can change after the order is created. Fields with a json key are stored in json_data.
+     */
+    public enum Field {
+        TASK_ID(null),
+        STATUS(null),
+        CUSTOMER(OrderJsonCodec.CUSTOMER),
+        ITEMS(OrderJsonCodec.ITEMS),
+        REJECT_REASON(OrderJsonCodec.REJECT_REASON),
+        RESERVATION_TOKEN(OrderJsonCodec.RESERVATION_TOKEN),
+        PAYMENT_TRANSACTION_ID(OrderJsonCodec.PAYMENT_TRANSACTION_ID),
+        DELIVERY_TRACKING_ID(OrderJsonCodec.DELIVERY_TRACKING_ID);
+
+        private final String jsonKey;
+
+        Field(String jsonKey) {
+            this.jsonKey = jsonKey;
+        }
+
+        public String jsonKey() {
+            return jsonKey;
+        }
+    }
+
     private UUID id;
     private Instant created;
     private Instant modified;
@@ -15,6 +43,7 @@ public class Order {
     private String reservationToken;
     private String paymentTransactionId;
     private String deliveryTrackingId;
+    private final EnumSet<Field> changes = EnumSet.noneOf(Field.class);
 
     public void assignFieldsFrom(Order other) {
         id = other.id;
@@ -28,6 +57,39 @@ public class Order {
         reservationToken = other.reservationToken;
         paymentTransactionId = other.paymentTransactionId;
         deliveryTrackingId = other.deliveryTrackingId;
+        changes.clear();
+        changes.addAll(other.changes);
+    }
+
+    /**
+     * Copy of the fields, without the changes: the copy is as if it had just been read from the database.
+     */
+    public Order copy() {
+        Order copy = new Order();
+        copy.assignFieldsFrom(this);
+        copy.clearChanges();
+        return copy;
+    }
+
+    /**
+     * Whether any field was set to a different value since the order was read from (or written to) the database.
+     */
+    public boolean hasChanges() {
+        return !changes.isEmpty();
+    }
+
+    public Set<Field> changedFields() {
+        return Collections.unmodifiableSet(changes);
+    }
+
+    public void clearChanges() {
+        changes.clear();
+    }
+
+    private void track(Field field, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            changes.add(field);
+        }
     }
 
     public UUID getId() {
@@ -59,6 +121,7 @@ public class Order {
     }
 
     public void setStatus(OrderStatus status) {
+        track(Field.STATUS, this.status, status);
         this.status = status;
     }
 
@@ -67,6 +130,7 @@ public class Order {
     }
 
     public void setTaskId(Long taskId) {
+        track(Field.TASK_ID, this.taskId, taskId);
         this.taskId = taskId;
     }
 
@@ -75,6 +139,7 @@ public class Order {
     }
 
     public void setCustomer(String customer) {
+        track(Field.CUSTOMER, this.customer, customer);
         this.customer = customer;
     }
 
@@ -83,6 +148,7 @@ public class Order {
     }
 
     public void setItems(String items) {
+        track(Field.ITEMS, this.items, items);
         this.items = items;
     }
 
@@ -91,6 +157,7 @@ public class Order {
     }
 
     public void setRejectReason(String rejectReason) {
+        track(Field.REJECT_REASON, this.rejectReason, rejectReason);
         this.rejectReason = rejectReason;
     }
 
@@ -99,6 +166,7 @@ public class Order {
     }
 
     public void setReservationToken(String reservationToken) {
+        track(Field.RESERVATION_TOKEN, this.reservationToken, reservationToken);
         this.reservationToken = reservationToken;
     }
 
@@ -107,6 +175,7 @@ public class Order {
     }
 
     public void setPaymentTransactionId(String paymentTransactionId) {
+        track(Field.PAYMENT_TRANSACTION_ID, this.paymentTransactionId, paymentTransactionId);
         this.paymentTransactionId = paymentTransactionId;
     }
 
@@ -115,6 +184,7 @@ public class Order {
     }
 
     public void setDeliveryTrackingId(String deliveryTrackingId) {
+        track(Field.DELIVERY_TRACKING_ID, this.deliveryTrackingId, deliveryTrackingId);
         this.deliveryTrackingId = deliveryTrackingId;
     }
 }
@@ -0,0 +1,63 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Moves shipped and rejected orders to {@code orders_archive} once they are older than the configured age,
+ * so that the hot {@code orders} table and its indexes stay proportional to the orders in progress.
+ * <p>
+ * Each batch is a separate short transaction. {@link OrderDao#findOrderById} reads both tables,
+ * so archived orders stay available by id.
+ */
+@ApplicationScoped
+public class OrderArchiver {
+    @ConfigProperty(name = "doertutorial.order-archive.enabled", defaultValue = "true")
+    boolean enabled;
+    @ConfigProperty(name = "doertutorial.order-archive.age", defaultValue = "7d")
+    Duration age;
+    @ConfigProperty(name = "doertutorial.order-archive.batch-size", defaultValue = "1000")
+    int batchSize;
+    @ConfigProperty(name = "doertutorial.order-archive.max-batches", defaultValue = "100")
+    int maxBatches;
+    @Inject
+    OrderDao orderDao;
+    @Inject
+    MeterRegistry registry;
+
+    private Counter archived;
+
+    @PostConstruct
+    void registerMetrics() {
+        archived = registry.counter("orders.archived");
+    }
+
+    @Scheduled(every = "${doertutorial.order-archive.interval:1m}", delayed = "1m",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void archiveFinishedOrders() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int count = orderDao.archiveFinishedOrders(age, batchSize);
+            archived.increment(count);
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            Log.infof("Archived %d finished orders", total);
+        }
+    }
+}
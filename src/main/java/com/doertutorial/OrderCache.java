@@ -0,0 +1,198 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of orders, indexed by order id and by task id. Entries expire after a TTL.
+ * <p>
+ * {@link OrderDao} writes through it after commit and sends {@link #CHANNEL} notifications on updates,
+ * which make the other application instances drop their copy of the order. {@link TaskNotifications} also drops
+ * the orders of tasks another instance moved on before it has Doer reload them, so a step does not start from
+ * an order the previous step changed elsewhere, whichever of the two notifications comes first.
+ * Cached orders are never handed out directly, readers always get a copy.
+ */
+@ApplicationScoped
+public class OrderCache {
+    public static final String CHANNEL = "orders_changed";
+
+    @ConfigProperty(name = "doertutorial.order-cache.enabled", defaultValue = "true")
+    boolean enabled;
+    @ConfigProperty(name = "doertutorial.order-cache.max-size", defaultValue = "10000")
+    int maxSize;
+    @ConfigProperty(name = "doertutorial.order-cache.ttl", defaultValue = "60s")
+    Duration ttl;
+    @Inject
+    MeterRegistry registry;
+    @Inject
+    PgListener pgListener;
+
+    private final Map<UUID, Entry> byId = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, UUID> idByTaskId = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Invalidation number of the latest invalidations by order id, the oldest are forgotten beyond maxSize
+    private final Map<UUID, Long> invalidatedAt = new LinkedHashMap<>();
+    private long invalidations;
+    // Stamps older than this can not tell whether their order was invalidated
+    private long forgottenBefore;
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("orders.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("orders.cache.misses", misses, AtomicLong::get).register(registry);
+        FunctionCounter.builder("orders.cache.evictions", evictions, AtomicLong::get).register(registry);
+        Gauge.builder("orders.cache.size", this, OrderCache::size).register(registry);
+    }
+
+    public void onApplicationStarted(@Observes StartupEvent startup) {
+        if (enabled) {
+            pgListener.listen(CHANNEL, this::onNotification, this::invalidateAll);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized Order getById(UUID id) {
+        return copyOf(lookup(byId.get(id)));
+    }
+
+    public synchronized Order getByTaskId(long taskId) {
+        UUID id = idByTaskId.get(taskId);
+        return copyOf(lookup(id == null ? null : byId.get(id)));
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #put(Order, long)} for orders read from the database.
+     */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Caches the order unless it was invalidated after the stamp was taken,
+     * because the invalidation could be about a newer version of it.
+     */
+    public synchronized void put(Order order, long stamp) {
+        if (stamp >= forgottenBefore && invalidatedAt.getOrDefault(order.getId(), 0L) <= stamp) {
+            put(order);
+        }
+    }
+
+    public synchronized void put(Order order) {
+        if (!enabled || order.getId() == null) {
+            return;
+        }
+        Entry previous = byId.put(order.getId(), new Entry(order.copy(), System.nanoTime() + ttl.toNanos()));
+        if (previous != null && previous.order().getTaskId() != null) {
+            idByTaskId.remove(previous.order().getTaskId());
+        }
+        if (order.getTaskId() != null) {
+            idByTaskId.put(order.getTaskId(), order.getId());
+        }
+        evictEldest();
+    }
+
+    public synchronized void invalidate(UUID id) {
+        invalidations++;
+        invalidatedAt.remove(id);
+        invalidatedAt.put(id, invalidations);
+        Iterator<Long> it = invalidatedAt.values().iterator();
+        while (invalidatedAt.size() > maxSize && it.hasNext()) {
+            forgottenBefore = it.next();
+            it.remove();
+        }
+        remove(id);
+    }
+
+    public synchronized void invalidateTask(long taskId) {
+        UUID id = idByTaskId.get(taskId);
+        if (id != null) {
+            invalidate(id);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations++;
+        forgottenBefore = invalidations;
+        invalidatedAt.clear();
+        byId.clear();
+        idByTaskId.clear();
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    void onNotification(String payload) {
+        // payload: node|order id|task id|status
+        String[] parts = payload.split("\\|");
+        if (parts.length >= 2 && !PgListener.NODE_ID.equals(parts[0])) {
+            invalidate(UUID.fromString(parts[1]));
+        }
+    }
+
+    static String notificationPayload(Order order) {
+        return PgListener.NODE_ID + "|" + order.getId() + "|" + (order.getTaskId() == null ? "" : order.getTaskId())
+                + "|" + (order.getStatus() == null ? "" : order.getStatus().name());
+    }
+
+    private Order lookup(Entry entry) {
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() < 0) {
+            remove(entry.order().getId());
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.order();
+    }
+
+    private void evictEldest() {
+        Iterator<Entry> it = byId.values().iterator();
+        while (byId.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            if (eldest.order().getTaskId() != null) {
+                idByTaskId.remove(eldest.order().getTaskId());
+            }
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(UUID id) {
+        Entry entry = byId.remove(id);
+        if (entry != null && entry.order().getTaskId() != null) {
+            idByTaskId.remove(entry.order().getTaskId());
+        }
+    }
+
+    private static Order copyOf(Order order) {
+        return order == null ? null : order.copy();
+    }
+
+    private record Entry(Order order, long expiresAt) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+
+/**
+ * Reconciles the {@code order_counters} behind {@code GET /orders/stats} with the orders tables.
+ * <p>
+ * The triggers on {@code orders} keep the counters exact for every write that goes through SQL, so corrections
+ * only come from changes that bypass them, such as {@code TRUNCATE} or restoring a dump. A reconciliation
+ * scans all orders, which is why it runs rarely and never on the request path.
+ */
+@ApplicationScoped
+public class OrderCounters {
+    @ConfigProperty(name = "doertutorial.order-counters.reconcile.enabled", defaultValue = "true")
+    boolean enabled;
+    @Inject
+    OrderDao orderDao;
+    @Inject
+    MeterRegistry registry;
+
+    private Counter corrected;
+
+    @PostConstruct
+    void registerMetrics() {
+        corrected = registry.counter("orders.counters.corrected");
+    }
+
+    @Scheduled(every = "${doertutorial.order-counters.reconcile.interval:1h}", delayed = "5m",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void reconcile() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        int count = orderDao.reconcileOrderCounters();
+        if (count > 0) {
+            corrected.increment(count);
+            Log.warnf("Corrected %d order counters", count);
+        }
+    }
+}
@@ -4,23 +4,57 @@ import com.doer.DoerLoader;
 import com.doer.DoerUnloader;
 import com.doer.Task;
 import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.json.*;
 import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
 import javax.sql.DataSource;
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.*;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 @Transactional
 public class OrderDao {
     @Inject
     DataSource ds;
+    @Inject
+    OrderCache orderCache;
+    @Inject
+    TransactionHooks transactionHooks;
+    @Inject
+    OrderEvents orderEvents;
+    static final int LIST_FETCH_SIZE = 500;
+    static final String COPY_TRANSACTION_TIMEOUT = "doertutorial.orders-copy.transaction-timeout";
+    static final String LIST_TRANSACTION_TIMEOUT = "doertutorial.orders-list.transaction-timeout";
+    private static final String ORDER_COLUMNS = "id, created, modified, task_id, status, json_data";
+    // One json value per line: CSV with quote and delimiter characters that never occur unescaped in JSON text
+    private static final String NDJSON_COPY_OPTIONS = "(FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+
+    @ConfigProperty(name = "doertutorial.order-prefetch.size", defaultValue = "100")
+    int prefetchSize;
+
+    // Task statuses with a prefetch running, see loadOrderForTask
+    final Set<String> prefetching = ConcurrentHashMap.newKeySet();
 
     public void insertOrder(Order order) throws SQLException {
         String sql = "INSERT INTO orders (id, created, modified, task_id, status, json_data) " +
@@ -44,17 +78,71 @@ public class OrderDao {
                 }
             }
         }
+        cacheAfterCommit(order);
+    }
+
+    /**
+     * Inserts all orders with a single multi-row statement. Orders without id get a random one.
+     */
+    public void insertOrders(List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO orders (id, created, modified, task_id, status, json_data) " +
+                "SELECT u.id, now(), now(), u.task_id, u.status, u.json_data::JSONB " +
+                "FROM unnest(?::UUID[], ?::BIGINT[], ?::VARCHAR[], ?::TEXT[]) AS u(id, task_id, status, json_data) " +
+                "RETURNING id, created, modified";
+        int size = orders.size();
+        UUID[] ids = new UUID[size];
+        Long[] taskIds = new Long[size];
+        String[] statuses = new String[size];
+        String[] jsonData = new String[size];
+        Map<UUID, Order> byId = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Order order = orders.get(i);
+            if (order.getId() == null) {
+                order.setId(UUID.randomUUID());
+            }
+            ids[i] = order.getId();
+            taskIds[i] = order.getTaskId();
+            statuses[i] = order.getStatus() == null ? null : order.getStatus().name();
+            jsonData[i] = createJsonData(order);
+            byId.put(order.getId(), order);
+        }
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setArray(1, con.createArrayOf("uuid", ids));
+            pst.setArray(2, con.createArrayOf("bigint", taskIds));
+            pst.setArray(3, con.createArrayOf("varchar", statuses));
+            pst.setArray(4, con.createArrayOf("text", jsonData));
+            int inserted = 0;
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Order order = byId.get(rs.getObject("id", UUID.class));
+                    order.setCreated(odtToInstant(rs.getObject("created", OffsetDateTime.class)));
+                    order.setModified(odtToInstant(rs.getObject("modified", OffsetDateTime.class)));
+                    order.clearChanges();
+                    inserted++;
+                }
+            }
+            if (inserted != size) {
+                throw new IllegalStateException("INSERT ... RETURNING call failed");
+            }
+        }
+        for (Order order : orders) {
+            cacheAfterCommit(order);
+        }
     }
 
     public void updateOrder(Order order) throws SQLException {
-        String sql = "UPDATE orders SET modified = now(), task_id = ?, status = ?, json_data = ?::JSONB " +
+        String sql = withNotify("UPDATE orders SET modified = now(), task_id = ?, status = ?, json_data = ?::JSONB " +
                 "WHERE id = ? " +
-                "RETURNING *";
+                "RETURNING *");
         try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setLong(1, order.getTaskId());
             pst.setString(2, order.getStatus() == null ? null : order.getStatus().name());
             pst.setString(3, createJsonData(order));
             pst.setObject(4, order.getId());
+            setNotifyParameters(pst, 5, order);
             try (ResultSet rs = pst.executeQuery()) {
                 if (rs.next()) {
                     order.assignFieldsFrom(readOrder(rs));
@@ -63,42 +151,457 @@ public class OrderDao {
                 }
             }
         }
+        cacheAfterCommit(order);
+        publishAfterCommit(order);
+    }
+
+    /**
+     * Writes only the fields changed since the order was loaded. Columns that did not change are left out of the
+     * statement, and json_data is patched instead of rewritten, so status-only steps can be HOT updates.
+     */
+    public void updateChangedFields(Order order) throws SQLException {
+        Set<Order.Field> changes = order.changedFields();
+        Set<Order.Field> jsonChanges = EnumSet.copyOf(OrderJsonCodec.JSON_FIELDS);
+        jsonChanges.retainAll(changes);
+        StringBuilder sql = new StringBuilder("UPDATE orders SET modified = now()");
+        if (changes.contains(Order.Field.TASK_ID)) {
+            sql.append(", task_id = ?");
+        }
+        if (changes.contains(Order.Field.STATUS)) {
+            sql.append(", status = ?");
+        }
+        if (!jsonChanges.isEmpty()) {
+            sql.append(", json_data = (coalesce(json_data, '{}'::JSONB) - ?::TEXT[]) || ?::JSONB");
+        }
+        sql.append(" WHERE id = ? RETURNING modified");
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(withNotify(sql.toString()))) {
+            int i = 1;
+            if (changes.contains(Order.Field.TASK_ID)) {
+                pst.setObject(i++, order.getTaskId(), Types.BIGINT);
+            }
+            if (changes.contains(Order.Field.STATUS)) {
+                pst.setString(i++, order.getStatus() == null ? null : order.getStatus().name());
+            }
+            if (!jsonChanges.isEmpty()) {
+                pst.setArray(i++, con.createArrayOf("text", removedJsonKeys(order, jsonChanges)));
+                pst.setString(i++, OrderJsonCodec.write(order, jsonChanges));
+            }
+            pst.setObject(i++, order.getId());
+            setNotifyParameters(pst, i, order);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    order.setModified(odtToInstant(rs.getObject("modified", OffsetDateTime.class)));
+                    order.clearChanges();
+                } else {
+                    throw new IllegalStateException("Order not found in database");
+                }
+            }
+        }
+        cacheAfterCommit(order);
+        if (changes.contains(Order.Field.STATUS)) {
+            publishAfterCommit(order);
+        }
     }
 
     public Order findOrderById(UUID id) throws SQLException {
-        String sql = "SELECT * FROM orders WHERE id = ?";
+        Order cached = orderCache.getById(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = orderCache.stamp();
+        // Archived orders are looked up only if the order is not in the hot table: Append stops at the first row.
+        // One statement sees one snapshot, so an order being archived right now is found in either table.
+        String sql = "SELECT " + ORDER_COLUMNS + " FROM orders WHERE id = ? " +
+                "UNION ALL SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE id = ? LIMIT 1";
         try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
             pst.setObject(1, id);
+            pst.setObject(2, id);
             try (ResultSet rs = pst.executeQuery()) {
                 if (rs.next()) {
-                    return readOrder(rs);
+                    return cacheAfterCommit(readOrder(rs), stamp);
                 }
                 return null;
             }
         }
     }
 
+    /**
+     * Reads the statuses of orders in progress and of archived ones, like {@link #findOrderById}.
+     */
+    public Map<UUID, OrderStatus> findOrderStatuses(Collection<UUID> ids) throws SQLException {
+        String sql = "SELECT id, status FROM orders WHERE id = ANY(?) " +
+                "UNION ALL SELECT id, status FROM orders_archive WHERE id = ANY(?)";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            Array idArray = con.createArrayOf("uuid", ids.toArray());
+            pst.setArray(1, idArray);
+            pst.setArray(2, idArray);
+            Map<UUID, OrderStatus> statuses = new HashMap<>();
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    statuses.put(rs.getObject("id", UUID.class), safeReadOrderStatus(rs, "status"));
+                }
+            }
+            return statuses;
+        }
+    }
+
+    /**
+     * Passes orders to the handler in {@code (created, id)} order, starting after the given keyset position.
+     * Archived orders are listed too, merged from the same indexes of {@code orders_archive}, so a listing
+     * does not depend on whether {@link OrderArchiver} has moved an order yet.
+     * Rows are read through a server-side cursor, {@link #LIST_FETCH_SIZE} at a time, so memory does not depend
+     * on {@code limit}. Listed orders are not cached. The transaction lasts as long as the client takes to read
+     * the page, hence its own timeout.
+     *
+     * @param status        null for any status
+     * @param customer      null for any customer
+     * @param afterCreated  null to start from the oldest order, otherwise {@code afterId} is required
+     * @return number of orders passed to the handler
+     */
+    @TransactionConfiguration(timeoutFromConfigProperty = LIST_TRANSACTION_TIMEOUT)
+    public int listOrders(OrderStatus status, String customer, Instant afterCreated, UUID afterId, int limit,
+                          OrderHandler handler) throws SQLException, IOException {
+        StringBuilder where = new StringBuilder(" WHERE TRUE");
+        List<Object> filters = new ArrayList<>();
+        if (status != null) {
+            where.append(" AND status = ?");
+            filters.add(status.name());
+        }
+        if (customer != null) {
+            where.append(" AND customer = ?");
+            filters.add(customer);
+        }
+        if (afterCreated != null) {
+            // Row comparison, so the (created, id) index range scan starts right at the position
+            where.append(" AND (created, id) > (?, ?)");
+            filters.add(afterCreated.atOffset(ZoneOffset.UTC));
+            filters.add(afterId);
+        }
+        // Postgres reads both tables in index order and merges them with a Merge Append, stopping at the limit.
+        String sql = "SELECT " + ORDER_COLUMNS + " FROM (" +
+                "SELECT " + ORDER_COLUMNS + " FROM orders" + where +
+                " UNION ALL SELECT " + ORDER_COLUMNS + " FROM orders_archive" + where +
+                ") o ORDER BY created, id LIMIT ?";
+        List<Object> parameters = new ArrayList<>(filters);
+        parameters.addAll(filters);
+        parameters.add(limit);
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            // The PostgreSQL driver only uses a cursor with a fetch size outside of autocommit, as in a JTA transaction
+            pst.setFetchSize(LIST_FETCH_SIZE);
+            for (int i = 0; i < parameters.size(); i++) {
+                pst.setObject(i + 1, parameters.get(i));
+            }
+            int count = 0;
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(readOrder(rs));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Writes all orders, archived ones included, oldest first, with {@code COPY ... TO STDOUT}: rows go from
+     * the database to the output without being mapped to {@link Order}. Columns are those of the {@code orders}
+     * table except the generated {@code customer}. NDJSON lines use the column names as keys.
+     * One statement sees one snapshot, so an order being archived meanwhile is exported exactly once.
+     *
+     * @return number of exported orders
+     */
+    @TransactionConfiguration(timeoutFromConfigProperty = COPY_TRANSACTION_TIMEOUT)
+    public long exportOrders(CopyFormat format, OutputStream output) throws SQLException, IOException {
+        String select = "SELECT " + ORDER_COLUMNS + " FROM orders UNION ALL SELECT " + ORDER_COLUMNS + " FROM orders_archive " +
+                "ORDER BY created, id";
+        String sql = switch (format) {
+            case CSV -> "COPY (" + select + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+            case NDJSON -> "COPY (SELECT row_to_json(o) FROM (" + select + ") o) TO STDOUT WITH " + NDJSON_COPY_OPTIONS;
+        };
+        try (Connection con = ds.getConnection()) {
+            return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, output);
+        }
+    }
+
+    /**
+     * Loads orders in the {@link #exportOrders} format with {@code COPY ... FROM STDIN} into a temporary table,
+     * then inserts those with a new id into {@code orders} in one statement. Task ids of the input are dropped.
+     * <p>
+     * With {@code createTasks}, every imported NEW or PROCESSING order gets a new task, in the status of the next
+     * step that its json_data shows to be missing, so Doer continues the order where it stopped: orders with
+     * a delivery tracking id are finished, orders with a reject reason are rejected, cancelling their payment
+     * and reservation, and only the others move forward.
+     * The tasks are not known to the Doer queues until they are reloaded from the database.
+     * Must run in a transaction, the temporary tables are dropped on commit.
+     */
+    public ImportResult importOrders(CopyFormat format, InputStream input, boolean createTasks)
+            throws SQLException, IOException {
+        try (Connection con = ds.getConnection()) {
+            CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+            long read;
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TEMP TABLE orders_import (" +
+                        "id UUID, created TIMESTAMP WITH TIME ZONE, modified TIMESTAMP WITH TIME ZONE, " +
+                        "task_id BIGINT, status VARCHAR, json_data JSONB, task_status VARCHAR(50)) ON COMMIT DROP");
+                if (format == CopyFormat.CSV) {
+                    read = copyManager.copyIn("COPY orders_import (" + ORDER_COLUMNS + ") FROM STDIN " +
+                            "WITH (FORMAT csv, HEADER true)", input);
+                } else {
+                    st.execute("CREATE TEMP TABLE orders_import_lines (line JSONB) ON COMMIT DROP");
+                    copyManager.copyIn("COPY orders_import_lines FROM STDIN WITH " + NDJSON_COPY_OPTIONS, input);
+                    read = st.executeUpdate("INSERT INTO orders_import (" + ORDER_COLUMNS + ") " +
+                            "SELECT " + ORDER_COLUMNS + " FROM orders_import_lines, " +
+                            "jsonb_populate_record(NULL::orders_import, line) WHERE line IS NOT NULL");
+                }
+                st.executeUpdate("DELETE FROM orders_import a USING orders_import b WHERE a.id = b.id AND a.ctid > b.ctid");
+                st.executeUpdate("DELETE FROM orders_import i USING orders o WHERE o.id = i.id");
+                st.executeUpdate("DELETE FROM orders_import i USING orders_archive o WHERE o.id = i.id");
+            }
+            int tasksCreated = 0;
+            if (createTasks) {
+                // Shipped orders only need finishing, rejected ones go back to the cancellations, which skip
+                // what the order has no token or transaction for.
+                String sql = "UPDATE orders_import SET task_id = nextval('id_generator'), task_status = CASE " +
+                        "WHEN status = 'NEW' THEN ? " +
+                        "WHEN json_data ->> 'delivery_tracking_id' IS NOT NULL THEN ? " +
+                        "WHEN json_data ->> 'reject_reason' = ? THEN ? " +
+                        "WHEN json_data ->> 'reject_reason' = ? THEN ? " +
+                        "WHEN json_data ->> 'reject_reason' IS NOT NULL THEN ? " +
+                        "WHEN json_data ->> 'payment_transaction_id' IS NOT NULL THEN ? " +
+                        "WHEN json_data ->> 'reservation_token' IS NOT NULL THEN ? " +
+                        "ELSE ? END " +
+                        "WHERE status IN ('NEW', 'PROCESSING')";
+                try (PreparedStatement pst = con.prepareStatement(sql)) {
+                    pst.setString(1, OrderProcessor.NEW_ORDER_CREATED);
+                    pst.setString(2, OrderProcessor.ORDER_SHIPPED);
+                    pst.setString(3, OrderProcessor.NO_GOODS_REASON);
+                    pst.setString(4, OrderProcessor.REJECTED_NO_GOODS);
+                    pst.setString(5, OrderProcessor.NO_PAYMENT_REASON);
+                    pst.setString(6, OrderProcessor.REJECTED_NO_PAYMENT);
+                    pst.setString(7, OrderProcessor.REJECTED_NO_SHIPPING);
+                    pst.setString(8, OrderProcessor.ORDER_PAID);
+                    pst.setString(9, OrderProcessor.GOODS_RESERVED);
+                    pst.setString(10, OrderProcessor.ORDER_PROCESSING_STARTED);
+                    pst.executeUpdate();
+                }
+                try (Statement st = con.createStatement()) {
+                    tasksCreated = st.executeUpdate("INSERT INTO tasks (id, status) " +
+                            "SELECT task_id, task_status FROM orders_import WHERE task_id IS NOT NULL");
+                }
+            } else {
+                try (Statement st = con.createStatement()) {
+                    st.executeUpdate("UPDATE orders_import SET task_id = NULL WHERE task_id IS NOT NULL");
+                }
+            }
+            int imported;
+            try (Statement st = con.createStatement()) {
+                imported = st.executeUpdate("INSERT INTO orders (" + ORDER_COLUMNS + ") " +
+                        "SELECT id, coalesce(created, now()), coalesce(modified, now()), task_id, status, json_data " +
+                        "FROM orders_import ON CONFLICT (id) DO NOTHING");
+            }
+            return new ImportResult(read, imported, tasksCreated);
+        }
+    }
+
+    /**
+     * Moves up to {@code limit} orders that were shipped or rejected more than {@code age} ago to
+     * {@code orders_archive}, oldest first. Rows locked by running steps are skipped, they will be picked up
+     * by a later batch.
+     *
+     * @return number of archived orders
+     */
+    public int archiveFinishedOrders(Duration age, int limit) throws SQLException {
+        String sql = "WITH moved AS (DELETE FROM orders WHERE id IN (" +
+                "SELECT id FROM orders WHERE status IN ('SHIPPED', 'REJECTED') " +
+                "AND modified < now() - ? * INTERVAL '1 millisecond' " +
+                "ORDER BY modified LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                "RETURNING " + ORDER_COLUMNS + ") " +
+                "INSERT INTO orders_archive (" + ORDER_COLUMNS + ") SELECT " + ORDER_COLUMNS + " FROM moved";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setLong(1, age.toMillis());
+            pst.setInt(2, limit);
+            return pst.executeUpdate();
+        }
+    }
+
+    /**
+     * Number of orders in each status, live and archived, from the {@code order_counters} the triggers on
+     * {@code orders} keep. Reads at most one row per status and stripe, whatever the size of the orders table.
+     *
+     * @param customer null for all customers
+     * @return every status, zero for the ones without orders
+     */
+    public Map<OrderStatus, Long> countOrdersByStatus(String customer) throws SQLException {
+        String sql = "SELECT status, sum(count) FROM order_counters WHERE customer = ? GROUP BY status";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, customer == null ? "" : customer);
+            try (ResultSet rs = pst.executeQuery()) {
+                Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+                for (OrderStatus status : OrderStatus.values()) {
+                    counts.put(status, 0L);
+                }
+                while (rs.next()) {
+                    OrderStatus status = safeReadOrderStatus(rs, "status");
+                    if (status != null) {
+                        counts.put(status, rs.getLong(2));
+                    }
+                }
+                return counts;
+            }
+        }
+    }
+
+    /**
+     * Adds the difference between the real order counts and {@code order_counters} to the counters, and drops
+     * stripes that are down to zero. Both are read in one statement snapshot, which sees the order writes
+     * of a transaction together with the counter updates of its triggers, so writes running meanwhile are
+     * neither lost nor counted twice. Scans {@code orders} and {@code orders_archive}.
+     *
+     * @return number of (customer, status) counts that were corrected
+     */
+    public int reconcileOrderCounters() throws SQLException {
+        String sql = "INSERT INTO order_counters AS c (customer, status, stripe, count) " +
+                "SELECT d.customer, d.status, 0, sum(d.delta) FROM (" +
+                "SELECT k.customer, o.status, count(*) AS delta " +
+                "FROM (SELECT status, customer FROM orders UNION ALL SELECT status, customer FROM orders_archive) o " +
+                "CROSS JOIN LATERAL (VALUES (''), (nullif(o.customer, ''))) AS k(customer) " +
+                "WHERE o.status IS NOT NULL AND k.customer IS NOT NULL GROUP BY k.customer, o.status " +
+                "UNION ALL " +
+                "SELECT customer, status, -sum(count) FROM order_counters GROUP BY customer, status) d " +
+                "GROUP BY d.customer, d.status HAVING sum(d.delta) <> 0 ORDER BY d.customer, d.status " +
+                "ON CONFLICT (customer, status, stripe) DO UPDATE SET count = c.count + EXCLUDED.count";
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            int corrected = st.executeUpdate(sql);
+            st.executeUpdate("DELETE FROM order_counters WHERE count = 0");
+            return corrected;
+        }
+    }
+
     public Order findOrderByTaskId(long taskId) throws SQLException {
-        String sql = "SELECT * FROM orders WHERE task_id = ? ORDER BY id LIMIT 1";
+        Order cached = orderCache.getByTaskId(taskId);
+        if (cached != null) {
+            return cached;
+        }
+        return readOrderByTaskId(taskId);
+    }
+
+    /**
+     * Loads orders of the given task and of up to {@code limit} other tasks waiting in the same status,
+     * which Doer is about to process next, in one query.
+     */
+    public List<Order> findOrdersForReadyTasks(long taskId, String taskStatus, int limit) throws SQLException {
+        String sql = "SELECT * FROM orders WHERE task_id = ANY(ARRAY(" +
+                "SELECT id FROM tasks WHERE status = ? AND NOT in_progress AND failing_since IS NULL " +
+                "ORDER BY created LIMIT ?) || ?::BIGINT)";
         try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
-            pst.setObject(1, taskId);
+            pst.setString(1, taskStatus);
+            pst.setInt(2, limit);
+            pst.setLong(3, taskId);
+            List<Order> orders = new ArrayList<>();
             try (ResultSet rs = pst.executeQuery()) {
-                if (rs.next()) {
-                    return readOrder(rs);
+                while (rs.next()) {
+                    orders.add(readOrder(rs));
                 }
-                return null;
             }
+            return orders;
         }
     }
 
+    /**
+     * Orders prefetched for a batch are cached as they are read, so Doer loads the rest of the batch from
+     * the cache: one query per batch. Workers that miss while a prefetch for the same task status is running
+     * read only their own order instead of prefetching the same batch again.
+     */
     @DoerLoader
     public Order loadOrderForTask(Task task) throws SQLException {
-        return findOrderByTaskId(task.getId());
+        Order cached = orderCache.getByTaskId(task.getId());
+        if (cached != null) {
+            return cached;
+        }
+        if (prefetchSize <= 0 || !orderCache.isEnabled() || task.getStatus() == null
+                || !prefetching.add(task.getStatus())) {
+            return readOrderByTaskId(task.getId());
+        }
+        try {
+            long stamp = orderCache.stamp();
+            Order result = null;
+            for (Order order : findOrdersForReadyTasks(task.getId(), task.getStatus(), prefetchSize)) {
+                // Committed rows the current step has not touched yet, so they can be cached right away.
+                orderCache.put(order, stamp);
+                if (task.getId().equals(order.getTaskId())) {
+                    result = order;
+                }
+            }
+            return result;
+        } finally {
+            prefetching.remove(task.getStatus());
+        }
+    }
+
+    private Order readOrderByTaskId(long taskId) throws SQLException {
+        long stamp = orderCache.stamp();
+        String sql = "SELECT * FROM orders WHERE task_id = ?";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setLong(1, taskId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    return cacheAfterCommit(readOrder(rs), stamp);
+                }
+                return null;
+            }
+        }
     }
 
     @DoerUnloader
     public void saveOrder(Task task, Order order) throws SQLException {
-        updateOrder(order);
+        if (order.hasChanges()) {
+            updateChangedFields(order);
+        }
+    }
+
+    /**
+     * Wraps an UPDATE ... RETURNING statement to also notify the other instances that the order changed.
+     * The notification is delivered only if the transaction commits.
+     */
+    private String withNotify(String updateSql) {
+        if (!notifyEnabled()) {
+            return updateSql;
+        }
+        return "WITH u AS (" + updateSql + ") SELECT u.*, pg_notify(?, ?) FROM u";
+    }
+
+    private boolean notifyEnabled() {
+        return orderCache.isEnabled() || orderEvents.isEnabled();
+    }
+
+    private void setNotifyParameters(PreparedStatement pst, int index, Order order) throws SQLException {
+        if (notifyEnabled()) {
+            pst.setString(index, OrderCache.CHANNEL);
+            pst.setString(index + 1, OrderCache.notificationPayload(order));
+        }
+    }
+
+    private void cacheAfterCommit(Order order) {
+        if (orderCache.isEnabled()) {
+            Order copy = order.copy();
+            transactionHooks.afterCompletion(() -> orderCache.put(copy), () -> orderCache.invalidate(copy.getId()));
+        }
+    }
+
+    private void publishAfterCommit(Order order) {
+        if (orderEvents.isEnabled()) {
+            UUID id = order.getId();
+            OrderStatus status = order.getStatus();
+            transactionHooks.afterCommit(() -> orderEvents.publish(id, status));
+        }
+    }
+
+    private Order cacheAfterCommit(Order order, long stamp) {
+        if (orderCache.isEnabled()) {
+            Order copy = order.copy();
+            transactionHooks.afterCommit(() -> orderCache.put(copy, stamp));
+        }
+        return order;
     }
 
     static Order readOrder(ResultSet rs) throws SQLException {
@@ -109,9 +612,17 @@ public class OrderDao {
         order.setTaskId(readNullableLong(rs, "task_id"));
         order.setStatus(safeReadOrderStatus(rs, "status"));
         updateOrderFromJsonData(order, rs.getString("json_data"));
+        order.clearChanges();
         return order;
     }
 
+    static String[] removedJsonKeys(Order order, Set<Order.Field> jsonFields) {
+        return jsonFields.stream()
+                .filter(field -> OrderJsonCodec.value(order, field) == null)
+                .map(Order.Field::jsonKey)
+                .toArray(String[]::new);
+    }
+
     static Long readNullableLong(ResultSet rs, String column) throws SQLException {
         long result = rs.getLong(column);
         return rs.wasNull() ? null : result;
@@ -135,39 +646,26 @@ public class OrderDao {
         if (order == null) {
             return null;
         }
-        JsonObjectBuilder b = Json.createObjectBuilder();
-        if (order.getCustomer() != null) {
-            b.add("customer", order.getCustomer());
-        }
-        if (order.getItems() != null) {
-            b.add("items", order.getItems());
-        }
-        if (order.getRejectReason() != null) {
-            b.add("reject_reason", order.getRejectReason());
-        }
-        if (order.getReservationToken() != null) {
-            b.add("reservation_token", order.getReservationToken());
-        }
-        if (order.getPaymentTransactionId() != null) {
-            b.add("payment_transaction_id", order.getPaymentTransactionId());
-        }
-        if (order.getDeliveryTrackingId() != null) {
-            b.add("delivery_tracking_id", order.getDeliveryTrackingId());
-        }
-        return b.build().toString();
+        return OrderJsonCodec.write(order);
     }
 
     static void updateOrderFromJsonData(Order order, String jsonData) {
         if (jsonData == null) {
             return;
         }
-        JsonObject json = Json.createReader(new StringReader(jsonData)).readObject();
-        order.setCustomer(json.getString("customer", null));
-        order.setItems(json.getString("items", null));
-        order.setRejectReason(json.getString("reject_reason", null));
-        order.setReservationToken(json.getString("reservation_token", null));
-        order.setPaymentTransactionId(json.getString("payment_transaction_id", null));
-        order.setDeliveryTrackingId(json.getString("delivery_tracking_id", null));
+        OrderJsonCodec.read(order, jsonData);
+    }
+
+    public enum CopyFormat {
+        CSV,
+        NDJSON
     }
-}
 
+    public record ImportResult(long read, int imported, int tasksCreated) {
+    }
+
+    @FunctionalInterface
+    public interface OrderHandler {
+        void handle(Order order) throws IOException;
+    }
+}
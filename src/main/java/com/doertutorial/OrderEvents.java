@@ -0,0 +1,160 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * In-process subscriptions to order status changes.
+ * <p>
+ * Changes made by this instance are published by {@link OrderDao} after commit, changes of other instances
+ * arrive with the {@link OrderCache#CHANNEL} notifications. Every watcher gets each status once:
+ * repeated or stale publications of the status it has already seen are dropped.
+ */
+@ApplicationScoped
+public class OrderEvents {
+    @ConfigProperty(name = "doertutorial.order-events.enabled", defaultValue = "true")
+    boolean enabled;
+    @Inject
+    PgListener pgListener;
+    @Inject
+    OrderDao orderDao;
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<UUID, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("orders.watchers", this, OrderEvents::watcherCount).register(registry);
+    }
+
+    public void onApplicationStarted(@Observes StartupEvent startup) {
+        if (enabled) {
+            pgListener.listen(OrderCache.CHANNEL, this::onNotification, this::refreshAll);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Subscribes to status changes of the order. The watcher gets nothing until the first {@link Watcher#deliver},
+     * normally called with the status the caller has read.
+     *
+     * @param listener gets every new status, returns false to unsubscribe
+     * @param closed   tells whether the client has gone, checked by the periodic cleanup
+     */
+    public Watcher watch(UUID orderId, Predicate<OrderStatus> listener, BooleanSupplier closed) {
+        Watcher watcher = new Watcher(orderId, listener, closed);
+        watchers.compute(orderId, (id, set) -> {
+            Set<Watcher> result = set == null ? ConcurrentHashMap.newKeySet() : set;
+            result.add(watcher);
+            return result;
+        });
+        return watcher;
+    }
+
+    public void unwatch(Watcher watcher) {
+        watchers.computeIfPresent(watcher.orderId, (id, set) -> {
+            set.remove(watcher);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void publish(UUID orderId, OrderStatus status) {
+        Set<Watcher> set = watchers.get(orderId);
+        if (set != null && status != null) {
+            for (Watcher watcher : set) {
+                watcher.deliver(status);
+            }
+        }
+    }
+
+    public int watcherCount() {
+        return watchers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    void onNotification(String payload) {
+        // payload: node|order id|task id|status
+        String[] parts = payload.split("\\|", -1);
+        if (parts.length >= 4 && !PgListener.NODE_ID.equals(parts[0]) && !parts[3].isEmpty()) {
+            publish(UUID.fromString(parts[1]), OrderStatus.valueOf(parts[3]));
+        }
+    }
+
+    /**
+     * Notifications may have been lost while the LISTEN connection was down, so watched orders are read again.
+     */
+    void refreshAll() {
+        if (watchers.isEmpty()) {
+            return;
+        }
+        try {
+            orderDao.findOrderStatuses(watchers.keySet()).forEach(this::publish);
+        } catch (SQLException e) {
+            Log.warnf(e, "Failed to refresh watched orders");
+        }
+    }
+
+    @Scheduled(every = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void removeClosedWatchers() {
+        for (Set<Watcher> set : watchers.values()) {
+            for (Watcher watcher : set) {
+                if (watcher.closed.getAsBoolean()) {
+                    unwatch(watcher);
+                }
+            }
+        }
+    }
+
+    public final class Watcher {
+        private final UUID orderId;
+        private final Predicate<OrderStatus> listener;
+        private final BooleanSupplier closed;
+        private OrderStatus last;
+
+        private Watcher(UUID orderId, Predicate<OrderStatus> listener, BooleanSupplier closed) {
+            this.orderId = orderId;
+            this.listener = listener;
+            this.closed = closed;
+        }
+
+        /**
+         * Passes the status to the listener, unless it is not past the status delivered last.
+         * Order statuses only move forward, in {@link OrderStatus} declaration order.
+         */
+        public synchronized void deliver(OrderStatus status) {
+            if (status == null || (last != null && status.compareTo(last) <= 0)) {
+                return;
+            }
+            last = status;
+            boolean keep;
+            try {
+                keep = listener.test(status);
+            } catch (RuntimeException e) {
+                Log.warnf(e, "Order %s watcher failed", orderId);
+                keep = false;
+            }
+            if (!keep) {
+                unwatch(this);
+            }
+        }
+    }
+}
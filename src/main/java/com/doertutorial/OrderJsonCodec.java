@@ -0,0 +1,132 @@
+package com.doertutorial;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import jakarta.json.stream.JsonParsingException;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Reads and writes {@code orders.json_data} in a single streaming pass, without building a {@code JsonObject}.
+ * The written text is identical to {@code JsonObjectBuilder.build().toString()} for the same fields.
+ */
+final class OrderJsonCodec {
+    static final String CUSTOMER = "customer";
+    static final String ITEMS = "items";
+    static final String REJECT_REASON = "reject_reason";
+    static final String RESERVATION_TOKEN = "reservation_token";
+    static final String PAYMENT_TRANSACTION_ID = "payment_transaction_id";
+    static final String DELIVERY_TRACKING_ID = "delivery_tracking_id";
+
+    static final Set<Order.Field> JSON_FIELDS =
+            Collections.unmodifiableSet(EnumSet.range(Order.Field.CUSTOMER, Order.Field.DELIVERY_TRACKING_ID));
+
+    // Json.createGenerator()/createParser() look up the JsonProvider on every call, factories do it once.
+    private static final JsonGeneratorFactory GENERATOR_FACTORY = Json.createGeneratorFactory(null);
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(null);
+
+    private OrderJsonCodec() {
+    }
+
+    static String write(Order order) {
+        return write(order, JSON_FIELDS);
+    }
+
+    /**
+     * Writes the given json_data fields that are not null, in {@link Order.Field} order. Other fields are ignored.
+     */
+    static String write(Order order, Set<Order.Field> fields) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator g = GENERATOR_FACTORY.createGenerator(out)) {
+            g.writeStartObject();
+            for (Order.Field field : fields) {
+                if (field.jsonKey() != null) {
+                    writeNotNull(g, field.jsonKey(), value(order, field));
+                }
+            }
+            g.writeEnd();
+        }
+        return out.toString();
+    }
+
+    static String value(Order order, Order.Field field) {
+        return switch (field) {
+            case CUSTOMER -> order.getCustomer();
+            case ITEMS -> order.getItems();
+            case REJECT_REASON -> order.getRejectReason();
+            case RESERVATION_TOKEN -> order.getReservationToken();
+            case PAYMENT_TRANSACTION_ID -> order.getPaymentTransactionId();
+            case DELIVERY_TRACKING_ID -> order.getDeliveryTrackingId();
+            default -> throw new IllegalArgumentException(field + " is not stored in json_data");
+        };
+    }
+
+    /**
+     * Assigns all json_data fields of the order. Missing keys and non-string values are read as null.
+     */
+    static void read(Order order, String jsonData) {
+        String customer = null;
+        String items = null;
+        String rejectReason = null;
+        String reservationToken = null;
+        String paymentTransactionId = null;
+        String deliveryTrackingId = null;
+        try (JsonParser p = PARSER_FACTORY.createParser(new StringReader(jsonData))) {
+            if (!p.hasNext() || p.next() != JsonParser.Event.START_OBJECT) {
+                throw new JsonParsingException("JSON object expected", p.getLocation());
+            }
+            JsonParser.Event event;
+            while ((event = p.next()) == JsonParser.Event.KEY_NAME) {
+                String key = p.getString();
+                String value = readStringOrSkip(p);
+                switch (key) {
+                    case CUSTOMER -> customer = value;
+                    case ITEMS -> items = value;
+                    case REJECT_REASON -> rejectReason = value;
+                    case RESERVATION_TOKEN -> reservationToken = value;
+                    case PAYMENT_TRANSACTION_ID -> paymentTransactionId = value;
+                    case DELIVERY_TRACKING_ID -> deliveryTrackingId = value;
+                    default -> {
+                    }
+                }
+            }
+            if (event != JsonParser.Event.END_OBJECT) {
+                throw new JsonParsingException("Unexpected " + event, p.getLocation());
+            }
+        }
+        order.setCustomer(customer);
+        order.setItems(items);
+        order.setRejectReason(rejectReason);
+        order.setReservationToken(reservationToken);
+        order.setPaymentTransactionId(paymentTransactionId);
+        order.setDeliveryTrackingId(deliveryTrackingId);
+    }
+
+    private static void writeNotNull(JsonGenerator g, String name, String value) {
+        if (value != null) {
+            g.write(name, value);
+        }
+    }
+
+    private static String readStringOrSkip(JsonParser p) {
+        switch (p.next()) {
+            case VALUE_STRING:
+                return p.getString();
+            case START_OBJECT:
+                p.skipObject();
+                return null;
+            case START_ARRAY:
+                p.skipArray();
+                return null;
+            default:
+                return null;
+        }
+    }
+}
@@ -5,18 +5,30 @@ import com.doertutorial.Bank.Check;
 import com.doertutorial.Warehouse.Reservation;
 import com.doertutorial.Warehouse.TrackId;
 import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 @ApplicationScoped
+@StepMetrics
 public class OrderProcessor {
     public static final String NEW_ORDER_CREATED = "New order created";
     public static final String ORDER_PROCESSING_STARTED = "Order processing started";
     public static final String GOODS_RESERVED = "Goods reserved";
+    /**
+     * Payment request is in flight, see {@link AsyncPayments}. No step accepts this status.
+     */
+    public static final String PAYMENT_REQUESTED = "Payment requested";
     public static final String NO_GOODS = "No Goods";
     public static final String REJECTED_NO_GOODS = "Rejected No Goods";
     public static final String PAYMENT_FAILED = "Payment failed";
@@ -28,27 +40,109 @@ public class OrderProcessor {
     public static final String PAYMENT_CANCELLED = "Payment cancelled";
     public static final String RESERVATION_CANCELLED = "Reservation cancelled";
 
+    static final String NO_GOODS_REASON = "Cannot reserve goods for this order.";
+    static final String NO_PAYMENT_REASON = "Payment not processed.";
+    static final String NO_SHIPPING_REASON = "Unable to ship the order.";
+
+    static final String PAYMENT_RETRY = "every 5m during 30m";
+    /**
+     * The {@code during} of {@link #PAYMENT_RETRY}, for the async path, which fails outside of the step.
+     */
+    static final Duration PAYMENT_RETRY_DURING = Duration.ofMinutes(30);
+
+    /**
+     * Steps without I/O, which can run right after the step that set their status, in the same transaction.
+     * This saves a full Doer cycle (queue pick-up, load, save, task log, version bump) per fused step.
+     */
+    static final Map<String, Step> INLINE_STEPS = Map.of(
+            NEW_ORDER_CREATED, OrderProcessor::startOrderProcessing,
+            NO_GOODS, OrderProcessor::reportNoGoodsForOrder,
+            PAYMENT_FAILED, OrderProcessor::reportNoPaymentForOrder,
+            ORDER_NOT_SHIPPED, OrderProcessor::reportOrderNotShipped,
+            ORDER_SHIPPED, OrderProcessor::finishOrderProcessing,
+            RESERVATION_CANCELLED, OrderProcessor::rejectOrder
+    );
+
     @Inject
     DoerService doerService;
     @Inject
     OrderDao orderDao;
     @Inject
-    @RestClient
+    TaskDao taskDao;
+    @Inject
+    TransactionHooks transactionHooks;
+    @Inject
     Warehouse warehouse;
     @Inject
-    @RestClient
     Bank bank;
+    @Inject
+    AsyncPayments asyncPayments;
+    @Inject
+    TaskParking taskParking;
+    @ConfigProperty(name = "doertutorial.inline-steps.enabled", defaultValue = "true")
+    boolean inlineStepsEnabled;
+    @ConfigProperty(name = "doertutorial.async-payments.enabled", defaultValue = "false")
+    boolean asyncPaymentsEnabled;
 
     @Transactional
     public void saveNewOrder(Order order) throws SQLException {
         Task task = new Task();
         task.setStatus(NEW_ORDER_CREATED);
+        order.setStatus(OrderStatus.NEW);
+        runInlineSteps(task, order);
         doerService.insert(task);
         order.setTaskId(task.getId());
-        order.setStatus(OrderStatus.NEW);
         orderDao.insertOrder(order);
     }
 
+    @Transactional
+    public void saveNewOrders(List<Order> orders) throws SQLException {
+        String status = NEW_ORDER_CREATED;
+        for (Order order : orders) {
+            Task task = new Task();
+            task.setStatus(NEW_ORDER_CREATED);
+            order.setStatus(OrderStatus.NEW);
+            runInlineSteps(task, order);
+            status = task.getStatus();
+        }
+        List<Long> taskIds = taskDao.insertTasks(status, orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setTaskId(taskIds.get(i));
+        }
+        orderDao.insertOrders(orders);
+    }
+
+    /**
+     * Imports orders with {@link OrderDao#importOrders} and lets Doer pick up the tasks created for them.
+     */
+    @Transactional
+    @TransactionConfiguration(timeoutFromConfigProperty = OrderDao.COPY_TRANSACTION_TIMEOUT)
+    public OrderDao.ImportResult importOrders(OrderDao.CopyFormat format, InputStream input, boolean createTasks)
+            throws SQLException, IOException {
+        OrderDao.ImportResult result = orderDao.importOrders(format, input, createTasks);
+        if (result.tasksCreated() > 0) {
+            transactionHooks.afterCommit(doerService::triggerQueuesReloadFromDb);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the {@link #INLINE_STEPS} accepting the current task status, until the status needs a step with I/O.
+     */
+    void runInlineSteps(Task task, Order order) {
+        if (!inlineStepsEnabled) {
+            return;
+        }
+        Step step;
+        while (task.getStatus() != null && (step = INLINE_STEPS.get(task.getStatus())) != null) {
+            String status = task.getStatus();
+            step.run(this, task, order);
+            if (status.equals(task.getStatus())) {
+                break;
+            }
+        }
+    }
+
     @AcceptStatus(NEW_ORDER_CREATED)
     public void startOrderProcessing(Task task, Order order) {
         order.setStatus(OrderStatus.PROCESSING);
@@ -58,42 +152,84 @@ public class OrderProcessor {
     @AcceptStatus(ORDER_PROCESSING_STARTED)
     @OnException(retry = "every 2m during 10m", setStatus = NO_GOODS)
     public void reserveGoods(Task task, Order order) {
-        Reservation reservation = warehouse.reserveGoods(order);
+        if (taskParking.parkIfUnavailable(task, GuardedWarehouse.SERVICE)) {
+            return;
+        }
+        Reservation reservation;
+        try {
+            reservation = warehouse.reserveGoods(order);
+        } catch (OutboundBusyException e) {
+            taskParking.parkBusy(task, GuardedWarehouse.SERVICE);
+            return;
+        }
         order.setReservationToken(reservation.token());
         task.setStatus(GOODS_RESERVED);
+        runInlineSteps(task, order);
     }
 
     @AcceptStatus(NO_GOODS)
     public void reportNoGoodsForOrder(Task task, Order order) {
-        order.setRejectReason("Cannot reserve goods for this order.");
+        order.setRejectReason(NO_GOODS_REASON);
         task.setStatus(REJECTED_NO_GOODS);
     }
 
     @AcceptStatus(GOODS_RESERVED)
-    @OnException(retry = "every 5m during 30m", setStatus = PAYMENT_FAILED)
+    @OnException(retry = PAYMENT_RETRY, setStatus = PAYMENT_FAILED)
     public void payOrder(Task task, Order order) {
-        Check check = bank.processPayment(order);
+        if (taskParking.parkIfUnavailable(task, GuardedBank.SERVICE)) {
+            return;
+        }
+        if (asyncPaymentsEnabled) {
+            // Failed async requests come back without an exception for Doer to stop retrying on.
+            if (task.getFailingSince() != null
+                    && task.getFailingSince().plus(PAYMENT_RETRY_DURING).isBefore(Instant.now())) {
+                task.setStatus(PAYMENT_FAILED);
+                runInlineSteps(task, order);
+                return;
+            }
+            asyncPayments.requestPaymentAfterCommit(task, order);
+            task.setStatus(PAYMENT_REQUESTED);
+            return;
+        }
+        Check check;
+        try {
+            check = bank.processPayment(order);
+        } catch (OutboundBusyException e) {
+            taskParking.parkBusy(task, GuardedBank.SERVICE);
+            return;
+        }
         order.setPaymentTransactionId(check.transactionId());
         task.setStatus(ORDER_PAID);
+        runInlineSteps(task, order);
     }
 
     @AcceptStatus(PAYMENT_FAILED)
     public void reportNoPaymentForOrder(Task task, Order order) {
-        order.setRejectReason("Payment not processed.");
+        order.setRejectReason(NO_PAYMENT_REASON);
         task.setStatus(REJECTED_NO_PAYMENT);
     }
 
     @AcceptStatus(ORDER_PAID)
     @OnException(retry = "every 2m during 10m", setStatus = ORDER_NOT_SHIPPED)
     public void shipOrder(Task task, Order order) {
-        TrackId trackId = warehouse.shipTheOrder(order);
+        if (taskParking.parkIfUnavailable(task, GuardedWarehouse.SERVICE)) {
+            return;
+        }
+        TrackId trackId;
+        try {
+            trackId = warehouse.shipTheOrder(order);
+        } catch (OutboundBusyException e) {
+            taskParking.parkBusy(task, GuardedWarehouse.SERVICE);
+            return;
+        }
         order.setDeliveryTrackingId(trackId.token());
         task.setStatus(ORDER_SHIPPED);
+        runInlineSteps(task, order);
     }
 
     @AcceptStatus(ORDER_NOT_SHIPPED)
     public void reportOrderNotShipped(Task task, Order order) {
-        order.setRejectReason("Unable to ship the order.");
+        order.setRejectReason(NO_SHIPPING_REASON);
         task.setStatus(REJECTED_NO_SHIPPING);
     }
 
@@ -110,20 +246,38 @@ public class OrderProcessor {
     @OnException(retry = "every 5m during 30m", setStatus = PAYMENT_CANCELLED)
     public void cancelPayment(Task task, Order order) {
         if (order.getPaymentTransactionId() != null) {
+            if (taskParking.parkIfUnavailable(task, GuardedBank.SERVICE)) {
+                return;
+            }
             Check check = new Check(order.getPaymentTransactionId());
-            bank.cancelPayment(check);
+            try {
+                bank.cancelPayment(check);
+            } catch (OutboundBusyException e) {
+                taskParking.parkBusy(task, GuardedBank.SERVICE);
+                return;
+            }
         }
         task.setStatus(PAYMENT_CANCELLED);
+        runInlineSteps(task, order);
     }
 
     @AcceptStatus(PAYMENT_CANCELLED)
     @OnException(retry = "every 2m during 10m", setStatus = RESERVATION_CANCELLED)
     public void cancelReservation(Task task, Order order) {
         if (order.getReservationToken() != null) {
+            if (taskParking.parkIfUnavailable(task, GuardedWarehouse.SERVICE)) {
+                return;
+            }
             Reservation reservation = new Reservation(order.getReservationToken());
-            warehouse.cancelReservation(reservation);
+            try {
+                warehouse.cancelReservation(reservation);
+            } catch (OutboundBusyException e) {
+                taskParking.parkBusy(task, GuardedWarehouse.SERVICE);
+                return;
+            }
         }
         task.setStatus(RESERVATION_CANCELLED);
+        runInlineSteps(task, order);
     }
 
     @AcceptStatus(RESERVATION_CANCELLED)
@@ -131,4 +285,9 @@ public class OrderProcessor {
         order.setStatus(OrderStatus.REJECTED);
         task.setStatus(null);
     }
+
+    @FunctionalInterface
+    interface Step {
+        void run(OrderProcessor processor, Task task, Order order);
+    }
 }
@@ -0,0 +1,141 @@
+package com.doertutorial;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.quarkus.vertx.http.runtime.RouteConstants;
+import io.quarkus.vertx.http.runtime.VertxInputStream;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * {@code POST /orders/import}: imports orders exported by {@code GET /orders/export}. Orders with an id that
+ * already exists are skipped. With {@code createTasks=true} orders that are not shipped or rejected yet get
+ * new Doer tasks.
+ * <p>
+ * Exports are far larger than any other request body, so this is a plain Vert.x route ordered before
+ * the handler that enforces {@code quarkus.http.limits.max-body-size}, with a limit of its own. The limit is checked
+ * against {@code Content-Length} up front, and by {@link VertxInputStream} while the body is streamed into
+ * {@code COPY}; other endpoints keep the global default.
+ */
+@ApplicationScoped
+public class OrdersImportRoute {
+    static final String PATH = "/orders/import";
+    // Context key VertxInputStream reads its limit from, otherwise set by the max-body-size handler.
+    static final String MAX_REQUEST_SIZE = "io.quarkus.max-request-size";
+
+    @ConfigProperty(name = "doertutorial.orders-import.max-body-size", defaultValue = "2G")
+    MemorySize maxBodySize;
+    @ConfigProperty(name = "doertutorial.orders-import.read-timeout", defaultValue = "60s")
+    Duration readTimeout;
+    @Inject
+    OrderProcessor orderProcessor;
+
+    void registerRoute(@Observes Router router) {
+        router.post(PATH)
+                .order(RouteConstants.ROUTE_ORDER_UPLOAD_LIMIT - 1)
+                .handler(this::handle);
+    }
+
+    void handle(RoutingContext ctx) {
+        OrderDao.CopyFormat format = copyFormat(ctx.request().getHeader(HttpHeaders.CONTENT_TYPE));
+        if (format == null) {
+            end(ctx, 415, "Content type must be " + OrdersResource.TEXT_CSV + " or " + OrdersResource.APPLICATION_NDJSON);
+            return;
+        }
+        long limit = maxBodySize.asLongValue();
+        String contentLength = ctx.request().getHeader(HttpHeaders.CONTENT_LENGTH);
+        long declaredLength;
+        try {
+            declaredLength = contentLength == null ? 0 : contentLength(contentLength);
+        } catch (NumberFormatException e) {
+            end(ctx, 400, "Malformed Content-Length: " + contentLength);
+            return;
+        }
+        if (declaredLength > limit) {
+            ctx.response().putHeader(HttpHeaders.CONNECTION, "close");
+            end(ctx, 413, "Request body larger than " + limit + " bytes");
+            return;
+        }
+        boolean createTasks = Boolean.parseBoolean(ctx.queryParams().get("createTasks"));
+        ctx.put(MAX_REQUEST_SIZE, limit);
+        // Created on the event loop, as RESTEasy does, so that no body chunk is missed.
+        InputStream body = new VertxInputStream(ctx, readTimeout.toMillis());
+        ctx.vertx().executeBlocking(() -> orderProcessor.importOrders(format, body, createTasks), false)
+                .onComplete(result -> {
+                    if (ctx.response().headWritten()) {
+                        // VertxInputStream has already answered 413
+                        return;
+                    }
+                    if (result.succeeded()) {
+                        OrderDao.ImportResult imported = result.result();
+                        Log.infof("Orders imported: %d of %d, tasks created: %d",
+                                imported.imported(), imported.read(), imported.tasksCreated());
+                        ctx.response().setStatusCode(200)
+                                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                                .end(resultJson(imported));
+                    } else if (isDataException(result.cause())) {
+                        end(ctx, 400, "Malformed input: " + result.cause().getMessage());
+                    } else {
+                        Log.errorf(result.cause(), "Orders import failed");
+                        end(ctx, 500, "Import failed");
+                    }
+                });
+    }
+
+    static OrderDao.CopyFormat copyFormat(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim();
+        if (mediaType.equalsIgnoreCase(OrdersResource.TEXT_CSV)) {
+            return OrderDao.CopyFormat.CSV;
+        }
+        if (mediaType.equalsIgnoreCase(OrdersResource.APPLICATION_NDJSON)) {
+            return OrderDao.CopyFormat.NDJSON;
+        }
+        return null;
+    }
+
+    /**
+     * @throws NumberFormatException if the header is not a non-negative decimal number
+     */
+    static long contentLength(String header) {
+        long length = Long.parseLong(header.trim());
+        if (length < 0) {
+            throw new NumberFormatException("Negative length " + header);
+        }
+        return length;
+    }
+
+    static String resultJson(OrderDao.ImportResult result) {
+        return Json.createObjectBuilder()
+                .add("read", result.read())
+                .add("imported", result.imported())
+                .add("skipped", result.read() - result.imported())
+                .add("tasksCreated", result.tasksCreated())
+                .build()
+                .toString();
+    }
+
+    // Class 22: data exception, e.g. a malformed uuid, timestamp or json value in the input
+    static boolean isDataException(Throwable e) {
+        return e instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("22");
+    }
+
+    private static void end(RoutingContext ctx, int status, String error) {
+        ctx.response().setStatusCode(status)
+                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .end(Json.createObjectBuilder().add("error", error).build().toString());
+    }
+}
@@ -4,28 +4,198 @@ import com.doer.DoerService;
 import com.doer.Task;
 import io.quarkus.logging.Log;
 import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParsingException;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.json.bind.JsonbConfig;
 import jakarta.json.bind.config.PropertyOrderStrategy;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Path("orders")
 public class OrdersResource {
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String TEXT_CSV = "text/csv";
+
+    private static final JsonReaderFactory READER_FACTORY = Json.createReaderFactory(null);
+    private static final JsonGeneratorFactory GENERATOR_FACTORY = Json.createGeneratorFactory(null);
+    private static final int DEFAULT_LIST_LIMIT = 1000;
+    private static final int MAX_LIST_LIMIT = 100_000;
+    static final int MAX_BATCH_SIZE = 10_000;
+    private static final CacheControl ORDER_VIEW_CACHE_CONTROL = noCache();
+    private static final int MAX_WAIT_SECONDS = 300;
+    private static final Set<OrderStatus> FINAL_STATUSES = Collections.unmodifiableSet(
+            EnumSet.of(OrderStatus.SHIPPED, OrderStatus.REJECTED));
+
     @Inject
     OrderDao orderDao;
     @Inject
+    TaskDao taskDao;
+    @Inject
     DoerService doerService;
     @Inject
     OrderProcessor orderProcessor;
+    @Inject
+    OrderEvents orderEvents;
+
+    /**
+     * Lists orders as NDJSON, oldest first, one order per line. The next page starts {@code after} the
+     * {@code created,id} of the last line, e.g. {@code ?after=2026-10-16T10:15:30.123456Z,6f1c...}.
+     * Lines are written while rows are read from the database, whatever the {@code limit}.
+     * Orders moved to the archive are listed as well.
+     */
+    @GET
+    @Produces(APPLICATION_NDJSON)
+    public Response listOrders(@QueryParam("status") String status,
+                               @QueryParam("customer") String customer,
+                               @QueryParam("after") String after,
+                               @QueryParam("limit") @DefaultValue("" + DEFAULT_LIST_LIMIT) int limit) {
+        OrderStatus statusFilter = null;
+        if (status != null && !status.isBlank()) {
+            Set<OrderStatus> statuses = parseStatuses(status);
+            if (statuses.size() != 1) {
+                throw new BadRequestException("One status expected");
+            }
+            statusFilter = statuses.iterator().next();
+        }
+        String customerFilter = customer == null || customer.isEmpty() ? null : customer;
+        if (limit < 1 || limit > MAX_LIST_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIST_LIMIT);
+        }
+        Instant afterCreated = null;
+        UUID afterId = null;
+        if (after != null && !after.isBlank()) {
+            int comma = after.indexOf(',');
+            try {
+                afterCreated = Instant.parse(after.substring(0, comma));
+                afterId = UUID.fromString(after.substring(comma + 1));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("after must be <created>,<id> of the last listed order");
+            }
+        }
+        OrderStatus finalStatus = statusFilter;
+        Instant finalAfterCreated = afterCreated;
+        UUID finalAfterId = afterId;
+        StreamingOutput body = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            StringWriter line = new StringWriter(512);
+            try {
+                orderDao.listOrders(finalStatus, customerFilter, finalAfterCreated, finalAfterId, limit, order -> {
+                    line.getBuffer().setLength(0);
+                    writeOrderLine(line, order);
+                    writer.append(line.getBuffer()).append('\n');
+                });
+            } catch (SQLException e) {
+                // Headers are likely sent already, the client sees a truncated stream
+                throw new IOException("Order listing failed", e);
+            }
+            writer.flush();
+        };
+        return Response.ok(body, APPLICATION_NDJSON)
+                .build();
+    }
+
+    static void writeOrderLine(Writer out, Order order) {
+        try (JsonGenerator g = GENERATOR_FACTORY.createGenerator(out)) {
+            g.writeStartObject();
+            g.write("id", order.getId().toString());
+            writeNotNull(g, "created", order.getCreated());
+            writeNotNull(g, "modified", order.getModified());
+            writeNotNull(g, "status", order.getStatus() == null ? null : order.getStatus().name());
+            if (order.getTaskId() != null) {
+                g.write("taskId", order.getTaskId());
+            }
+            writeNotNull(g, "customer", order.getCustomer());
+            writeNotNull(g, "items", order.getItems());
+            writeNotNull(g, "rejectReason", order.getRejectReason());
+            writeNotNull(g, "reservationToken", order.getReservationToken());
+            writeNotNull(g, "paymentTransactionId", order.getPaymentTransactionId());
+            writeNotNull(g, "deliveryTrackingId", order.getDeliveryTrackingId());
+            g.writeEnd();
+        }
+    }
+
+    private static void writeNotNull(JsonGenerator g, String key, Object value) {
+        if (value != null) {
+            g.write(key, value.toString());
+        }
+    }
+
+    /**
+     * Exports all orders, archived ones included, in the format {@code POST /orders/import} reads.
+     */
+    @GET
+    @Path("export")
+    @Produces(TEXT_CSV)
+    public Response exportOrdersCsv() {
+        return exportOrders(OrderDao.CopyFormat.CSV, TEXT_CSV);
+    }
+
+    @GET
+    @Path("export")
+    @Produces(APPLICATION_NDJSON)
+    public Response exportOrdersNdjson() {
+        return exportOrders(OrderDao.CopyFormat.NDJSON, APPLICATION_NDJSON);
+    }
+
+    private Response exportOrders(OrderDao.CopyFormat format, String mediaType) {
+        StreamingOutput body = output -> {
+            try {
+                long count = orderDao.exportOrders(format, output);
+                Log.infof("Orders exported: %d", count);
+            } catch (SQLException e) {
+                throw new IOException("Order export failed", e);
+            }
+        };
+        return Response.ok(body, mediaType)
+                .build();
+    }
 
     @POST
     @Path("submit")
@@ -42,27 +212,287 @@ public class OrdersResource {
                 .build();
     }
 
+    @POST
+    @Path("submit-batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response submitNewOrders(InputStream body) throws SQLException {
+        return submitBatch(readOrderArray(body));
+    }
+
+    @POST
+    @Path("submit-batch")
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response submitNewOrdersNdjson(InputStream body) throws SQLException, IOException {
+        return submitBatch(readOrderLines(body));
+    }
+
+    private Response submitBatch(List<Order> orders) throws SQLException {
+        orderProcessor.saveNewOrders(orders);
+        doerService.triggerQueuesReloadFromDb();
+        Log.infof("Orders submitted: %d", orders.size());
+        JsonArrayBuilder json = Json.createArrayBuilder();
+        for (Order order : orders) {
+            json.add(Json.createObjectBuilder()
+                    .add("id", order.getId().toString())
+                    .add("location", "/orders/" + order.getId()));
+        }
+        return Response.ok(json.build().toString(), MediaType.APPLICATION_JSON_TYPE)
+                .build();
+    }
+
+    static List<Order> readOrderArray(InputStream body) {
+        List<Order> orders = new ArrayList<>();
+        try (JsonParser parser = Json.createParser(body)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new BadRequestException("JSON array of orders expected");
+            }
+            JsonParser.Event event;
+            while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                if (event != JsonParser.Event.START_OBJECT) {
+                    throw new BadRequestException("Order " + (orders.size() + 1) + " is not a JSON object");
+                }
+                addToBatch(orders, orderFromJson(parser.getObject()));
+            }
+            if (parser.hasNext()) {
+                throw new BadRequestException("Unexpected content after the JSON array");
+            }
+        } catch (JsonParsingException | NoSuchElementException e) {
+            throw new BadRequestException("Malformed JSON: " + e.getMessage());
+        }
+        return orders;
+    }
+
+    static List<Order> readOrderLines(InputStream body) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                addToBatch(orders, orderFromJson(READER_FACTORY.createReader(new StringReader(line)).readObject()));
+            } catch (JsonException e) {
+                throw new BadRequestException("Malformed JSON line " + (orders.size() + 1) + ": " + e.getMessage());
+            }
+        }
+        return orders;
+    }
+
+    private static void addToBatch(List<Order> orders, Order order) {
+        if (orders.size() == MAX_BATCH_SIZE) {
+            throw new BadRequestException("A batch takes at most " + MAX_BATCH_SIZE + " orders");
+        }
+        orders.add(order);
+    }
+
+    static Order orderFromJson(JsonObject json) {
+        Order order = new Order();
+        order.setCustomer(json.getString("customer", null));
+        order.setItems(json.getString("items", null));
+        return order;
+    }
+
+    /**
+     * Number of orders in each status, of one customer or of all, including archived orders.
+     * Served from counters maintained on every write, so the cost does not grow with the orders table.
+     */
+    @GET
+    @Path("stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String getOrderStats(@QueryParam("customer") String customer) throws SQLException {
+        return orderStatsJson(customer, orderDao.countOrdersByStatus(customer));
+    }
+
+    static String orderStatsJson(String customer, Map<OrderStatus, Long> counts) {
+        JsonObjectBuilder statuses = Json.createObjectBuilder();
+        long total = 0;
+        for (Map.Entry<OrderStatus, Long> count : counts.entrySet()) {
+            statuses.add(count.getKey().name(), count.getValue());
+            total += count.getValue();
+        }
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        if (customer != null) {
+            json.add("customer", customer);
+        }
+        return json.add("statuses", statuses)
+                .add("total", total)
+                .build()
+                .toString();
+    }
+
+    /**
+     * Order with its Doer task, pretty printed for debugging. The ETag combines the order modification time
+     * and the task version, so revalidating an unchanged order costs an order lookup (usually cached)
+     * and a single-row task query, without loading the task.
+     */
     @GET
     @Path("{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getOrder(@PathParam("id") UUID id) throws Exception {
-        // Custom json rendering (for debugging purpose)
-        JsonbConfig jsonbConfig = new JsonbConfig()
+    public Response getOrder(@PathParam("id") UUID id, @Context Request request) throws SQLException {
+        Order order = orderDao.findOrderById(id);
+        if (order == null) {
+            throw new NotFoundException("Order not found");
+        }
+        TaskDao.TaskStamp stamp = (order.getTaskId() != null ? taskDao.findTaskStamp(order.getTaskId()) : null);
+        EntityTag etag = orderViewTag(order, stamp);
+        Date lastModified = orderViewLastModified(order, stamp);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, etag);
+        if (notModified != null) {
+            return notModified.cacheControl(ORDER_VIEW_CACHE_CONTROL)
+                    .build();
+        }
+        Task task = (order.getTaskId() != null ? doerService.loadTask(order.getTaskId()) : null);
+        if (task != null) {
+            // The task may have moved on since the stamp was read; tag what is actually sent.
+            stamp = new TaskDao.TaskStamp(task.getVersion(), task.getModified());
+            etag = orderViewTag(order, stamp);
+            lastModified = orderViewLastModified(order, stamp);
+        }
+        OrderView view = new OrderView(order, task);
+        StreamingOutput body = output -> OrderViewJsonb.INSTANCE.toJson(view, output);
+        return Response.ok(body, MediaType.APPLICATION_JSON_TYPE)
+                .tag(etag)
+                .lastModified(lastModified)
+                .cacheControl(ORDER_VIEW_CACHE_CONTROL)
+                .build();
+    }
+
+    static EntityTag orderViewTag(Order order, TaskDao.TaskStamp stamp) {
+        long modified = order.getModified() == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, order.getModified());
+        return new EntityTag(Long.toHexString(modified) + "-" + (stamp == null ? "0" : Integer.toHexString(stamp.version())));
+    }
+
+    static Date orderViewLastModified(Order order, TaskDao.TaskStamp stamp) {
+        Instant modified = order.getModified() == null ? Instant.EPOCH : order.getModified();
+        if (stamp != null && stamp.modified() != null && stamp.modified().isAfter(modified)) {
+            modified = stamp.modified();
+        }
+        // HTTP dates have second precision, If-Modified-Since would never match a value with millis.
+        return Date.from(modified.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static CacheControl noCache() {
+        // Cache, but always revalidate: the order may change any time
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        return cacheControl;
+    }
+
+    public record OrderView(Order order, Task task) {
+    }
+
+    /**
+     * Built once, on first use: creating a Jsonb instance sets up the Yasson runtime and reflection metadata.
+     * Jsonb is thread-safe.
+     */
+    private static final class OrderViewJsonb {
+        static final Jsonb INSTANCE = JsonbBuilder.create(new JsonbConfig()
                 .withFormatting(true)
                 .withNullValues(true)
-                .withPropertyOrderStrategy(PropertyOrderStrategy.LEXICOGRAPHICAL);
-        try (Jsonb jsonb = JsonbBuilder.create(jsonbConfig)) {
-            Order order = orderDao.findOrderById(id);
-            if (order == null) {
-                throw new NotFoundException("Order not found");
+                .withPropertyOrderStrategy(PropertyOrderStrategy.LEXICOGRAPHICAL));
+    }
+
+    /**
+     * Streams status changes of the order, starting with the current status.
+     * The stream ends when the order is shipped or rejected.
+     */
+    @GET
+    @Path("{id}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamOrderEvents(@PathParam("id") UUID id, @Context SseEventSink sink, @Context Sse sse)
+            throws SQLException {
+        // Subscribe before reading, so no change falls in between. Changes older than the read status are dropped.
+        OrderEvents.Watcher watcher = orderEvents.watch(id, status -> {
+            if (sink.isClosed()) {
+                return false;
             }
-            Task task = (order.getTaskId() != null ? doerService.loadTask(order.getTaskId()) : null);
-            Map<String, Object> map = new HashMap<>();
-            map.put("order", order);
-            map.put("task", task);
-            String json = jsonb.toJson(map);
-            return Response.ok(json, MediaType.APPLICATION_JSON_TYPE)
+            OutboundSseEvent event = sse.newEventBuilder()
+                    .name("status")
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(statusJson(id, status))
                     .build();
+            boolean last = FINAL_STATUSES.contains(status);
+            sink.send(event).whenComplete((result, error) -> {
+                if (error != null || last) {
+                    sink.close();
+                }
+            });
+            return !last;
+        }, sink::isClosed);
+        Order order = orderDao.findOrderById(id);
+        if (order == null) {
+            orderEvents.unwatch(watcher);
+            throw new NotFoundException("Order not found");
+        }
+        watcher.deliver(order.getStatus());
+    }
+
+    /**
+     * Long-poll variant of {@link #streamOrderEvents}: responds as soon as the order is in one of the {@code waitFor}
+     * statuses, {@code SHIPPED|REJECTED} by default. After {@code timeout} seconds responds with the current status.
+     */
+    @GET
+    @Path("{id}/events")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void waitForOrderStatus(@PathParam("id") UUID id,
+                                   @QueryParam("waitFor") String waitFor,
+                                   @QueryParam("timeout") @DefaultValue("30") int timeoutSeconds,
+                                   @Suspended AsyncResponse response) throws SQLException {
+        Set<OrderStatus> targets = waitFor == null || waitFor.isBlank() ? FINAL_STATUSES : parseStatuses(waitFor);
+        if (timeoutSeconds < 1 || timeoutSeconds > MAX_WAIT_SECONDS) {
+            throw new BadRequestException("timeout must be between 1 and " + MAX_WAIT_SECONDS + " seconds");
+        }
+        AtomicReference<OrderStatus> current = new AtomicReference<>();
+        AtomicReference<OrderEvents.Watcher> watcher = new AtomicReference<>();
+        response.setTimeoutHandler(r -> {
+            if (watcher.get() != null) {
+                orderEvents.unwatch(watcher.get());
+            }
+            r.resume(statusResponse(id, current.get()));
+        });
+        response.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        watcher.set(orderEvents.watch(id, status -> {
+            current.set(status);
+            if (targets.contains(status)) {
+                response.resume(statusResponse(id, status));
+                return false;
+            }
+            return !response.isDone();
+        }, response::isDone));
+        Order order = orderDao.findOrderById(id);
+        if (order == null) {
+            orderEvents.unwatch(watcher.get());
+            response.resume(new NotFoundException("Order not found"));
+            return;
         }
+        watcher.get().deliver(order.getStatus());
+    }
+
+    static Set<OrderStatus> parseStatuses(String statuses) {
+        Set<OrderStatus> result = EnumSet.noneOf(OrderStatus.class);
+        for (String status : statuses.split("\\|")) {
+            try {
+                result.add(OrderStatus.valueOf(status.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unknown order status " + status);
+            }
+        }
+        return result;
+    }
+
+    static String statusJson(UUID id, OrderStatus status) {
+        return Json.createObjectBuilder()
+                .add("id", id.toString())
+                .add("status", status == null ? "" : status.name())
+                .build()
+                .toString();
+    }
+
+    private static Response statusResponse(UUID id, OrderStatus status) {
+        return Response.ok(statusJson(id, status), MediaType.APPLICATION_JSON_TYPE)
+                .build();
     }
 }
@@ -0,0 +1,10 @@
+package com.doertutorial;
+
+/**
+ * Thrown instead of calling an external service that already has the maximum number of calls in flight.
+ */
+public class OutboundBusyException extends RuntimeException {
+    public OutboundBusyException(String service) {
+        super("Too many concurrent calls to " + service);
+    }
+}
@@ -0,0 +1,222 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Execution policy for calls to external services, keyed by the rest client config key.
+ * <p>
+ * Every service has its own {@link AimdLimiter} of concurrent in-flight calls, which backs off when the service
+ * gets slow ({@code latency-threshold}) or fails, and grows back up to
+ * {@code doertutorial.outbound.<config-key>.max-concurrent}. Calls above the limit wait for a slot, for at most
+ * the short {@code doertutorial.outbound.max-wait}, then fail with {@link OutboundBusyException}. Steps park
+ * their task then, see {@link TaskParking}, so a slow service holds its limit of Doer workers and no more.
+ * <p>
+ * {@link #call} runs the exchange on the Doer worker, which is blocked until the response arrives anyway.
+ * {@link #callAsync} does not wait at all: without a free slot it fails with {@link OutboundBusyException} at once,
+ * and the slot is released when the response arrives.
+ * <p>
+ * Every service also has a {@link CircuitBreaker} ({@code doertutorial.outbound.<config-key>.breaker.*}).
+ * While it refuses calls, they fail fast with {@link CircuitOpenException}; steps check {@link #permits} first
+ * and park their task instead, see {@link TaskParking}. Breaker transitions are fired as async CDI events.
+ */
+@ApplicationScoped
+public class OutboundGuard {
+    @ConfigProperty(name = "doertutorial.outbound.max-wait", defaultValue = "200ms")
+    Duration maxWait;
+    @Inject
+    Config config;
+    @Inject
+    MeterRegistry registry;
+    @Inject
+    Event<CircuitBreaker.Transition> transitions;
+
+    private final Map<String, AimdLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("outbound-", 0).factory());
+
+    private final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("outbound-batch-timer").daemon().factory());
+
+    @PreDestroy
+    void shutdown() {
+        batchTimer.shutdown();
+        executor.shutdown();
+    }
+
+    public <T> T call(String service, Callable<T> call) {
+        CircuitBreaker breaker = permit(service);
+        AimdLimiter.Permit permit = acquire(service, breaker, maxWait);
+        try {
+            T result = call.call();
+            recordOutcome(breaker, permit, null);
+            return result;
+        } catch (RuntimeException e) {
+            recordOutcome(breaker, permit, e);
+            throw e;
+        } catch (Exception e) {
+            recordOutcome(breaker, permit, e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void run(String service, Runnable call) {
+        call(service, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Starts a non-blocking call. The slot is taken on the calling thread without waiting for one,
+     * and is held until the returned stage completes.
+     *
+     * @throws OutboundBusyException if the service has no free slot
+     */
+    public <T> CompletionStage<T> callAsync(String service, Supplier<CompletionStage<T>> call) {
+        CircuitBreaker breaker = permit(service);
+        AimdLimiter.Permit permit = acquire(service, breaker, Duration.ZERO);
+        CompletionStage<T> stage;
+        try {
+            stage = call.get();
+        } catch (RuntimeException e) {
+            recordOutcome(breaker, permit, e);
+            throw e;
+        }
+        return stage.whenComplete((result, error) -> recordOutcome(breaker, permit, error));
+    }
+
+    /**
+     * Creates the coalescing stage for single-item calls of the service, if {@code batch.enabled} is set for it.
+     * Every bulk call goes through {@link #call}, so it takes one slot of the limiter and counts once for the breaker.
+     *
+     * @return null if batching is disabled for the service
+     */
+    public <I, O> MicroBatcher<I, O> batcher(String service, Function<List<I>, List<O>> bulkCall) {
+        String prefix = "doertutorial.outbound." + service + ".batch.";
+        if (!config.getOptionalValue(prefix + "enabled", Boolean.class).orElse(false)) {
+            return null;
+        }
+        return new MicroBatcher<>(
+                config.getOptionalValue(prefix + "max-size", Integer.class).orElse(50),
+                config.getOptionalValue(prefix + "window", Duration.class).orElse(Duration.ofMillis(20)),
+                items -> call(service, () -> bulkCall.apply(items)),
+                batchTimer,
+                executor);
+    }
+
+    /**
+     * Tells whether the breaker of the service would let a call through now.
+     */
+    public boolean permits(String service) {
+        return breaker(service).permits();
+    }
+
+    public CircuitBreaker breaker(String service) {
+        return breakers.computeIfAbsent(service, this::createBreaker);
+    }
+
+    private CircuitBreaker permit(String service) {
+        CircuitBreaker breaker = breaker(service);
+        if (!breaker.tryAcquire()) {
+            throw new CircuitOpenException(service);
+        }
+        return breaker;
+    }
+
+    public AimdLimiter limiter(String service) {
+        return limiters.computeIfAbsent(service, this::createLimiter);
+    }
+
+    private AimdLimiter.Permit acquire(String service, CircuitBreaker breaker, Duration wait) {
+        Timer.Sample sample = Timer.start(registry);
+        AimdLimiter.Permit permit = null;
+        try {
+            permit = limiter(service).acquire(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sample.stop(registry.timer("outbound.queue.wait", "service", service));
+        if (permit == null) {
+            breaker.onNotCalled();
+            throw new OutboundBusyException(service);
+        }
+        return permit;
+    }
+
+    /**
+     * Client errors (4xx) are answers of a working service, they count as successes.
+     */
+    private static void recordOutcome(CircuitBreaker breaker, AimdLimiter.Permit permit, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null || cause instanceof WebApplicationException e
+                && e.getResponse() != null && e.getResponse().getStatus() < 500) {
+            permit.onSuccess();
+            breaker.onSuccess();
+        } else {
+            permit.onFailure();
+            breaker.onFailure();
+        }
+    }
+
+    private CircuitBreaker createBreaker(String service) {
+        String prefix = "doertutorial.outbound." + service + ".breaker.";
+        CircuitBreaker breaker = new CircuitBreaker(service,
+                config.getOptionalValue(prefix + "failure-threshold", Integer.class).orElse(5),
+                config.getOptionalValue(prefix + "open-duration", Duration.class).orElse(Duration.ofSeconds(30)),
+                config.getOptionalValue(prefix + "probes", Integer.class).orElse(1),
+                System::nanoTime,
+                this::onTransition);
+        Gauge.builder("outbound.breaker.state", breaker, b -> b.state().ordinal())
+                .description("0 - closed, 1 - half-open, 2 - open")
+                .tag("service", service)
+                .register(registry);
+        return breaker;
+    }
+
+    private void onTransition(CircuitBreaker.Transition transition) {
+        Log.infof("Circuit breaker of %s: %s -> %s", transition.service(), transition.from(), transition.to());
+        registry.counter("outbound.breaker.transitions",
+                "service", transition.service(), "state", transition.to().name().toLowerCase()).increment();
+        transitions.fireAsync(transition);
+    }
+
+    private AimdLimiter createLimiter(String service) {
+        String prefix = "doertutorial.outbound." + service + ".";
+        int maxConcurrent = config.getOptionalValue(prefix + "max-concurrent", Integer.class).orElse(20);
+        AimdLimiter limiter = new AimdLimiter(
+                config.getOptionalValue(prefix + "initial-concurrent", Integer.class).orElse(maxConcurrent),
+                config.getOptionalValue(prefix + "min-concurrent", Integer.class).orElse(1),
+                maxConcurrent,
+                config.getOptionalValue(prefix + "latency-threshold", Duration.class).orElse(Duration.ofSeconds(1)),
+                config.getOptionalValue(prefix + "backoff-ratio", Double.class).orElse(0.75),
+                System::nanoTime);
+        Gauge.builder("outbound.limit", limiter, AimdLimiter::getLimit).tag("service", service).register(registry);
+        Gauge.builder("outbound.inflight", limiter, AimdLimiter::getInFlight).tag("service", service).register(registry);
+        Gauge.builder("outbound.waiting", limiter, AimdLimiter::getWaiting).tag("service", service).register(registry);
+        return limiter;
+    }
+}
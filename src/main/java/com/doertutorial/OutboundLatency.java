@@ -0,0 +1,73 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of Warehouse and Bank calls per endpoint, method and response status.
+ * <p>
+ * Timers publish p50, p99 and p99.9 on {@code /q/metrics} as {@code outbound_client_requests_seconds}.
+ * Micrometer records them into lock-free HdrHistogram recorders over a rotating window, so recording costs
+ * no lock on the calling thread. Timers are looked up once per endpoint and status.
+ */
+@ApplicationScoped
+public class OutboundLatency {
+    static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    @ConfigProperty(name = "doertutorial.outbound.slow-call-threshold", defaultValue = "2s")
+    Duration slowCallThreshold;
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, String method, int status, long nanos) {
+        timer(endpoint, method, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isSlow(long nanos) {
+        return !slowCallThreshold.isZero() && nanos >= slowCallThreshold.toNanos();
+    }
+
+    /**
+     * Duration of the call with the current percentiles of its endpoint, in milliseconds.
+     */
+    public JsonObjectBuilder describe(String endpoint, String method, int status, long nanos) {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("duration_ms", TimeUnit.NANOSECONDS.toMillis(nanos));
+        for (ValueAtPercentile percentile : timer(endpoint, method, status).takeSnapshot().percentileValues()) {
+            json.add("p" + percentileLabel(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return json;
+    }
+
+    static String percentileLabel(double percentile) {
+        // 0.5 -> 50, 0.99 -> 99, 0.999 -> 999
+        String digits = Double.toString(percentile).substring(2);
+        return digits.length() == 1 ? digits + "0" : digits;
+    }
+
+    private Timer timer(String endpoint, String method, int status) {
+        return timers.computeIfAbsent(new Key(endpoint, method, status), key -> Timer.builder("outbound.client.requests")
+                .tag("endpoint", String.valueOf(key.endpoint()))
+                .tag("method", String.valueOf(key.method()))
+                .tag("status", Integer.toString(key.status()))
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .register(registry));
+    }
+
+    private record Key(String endpoint, String method, int status) {
+    }
+}
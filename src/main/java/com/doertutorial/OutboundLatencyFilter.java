@@ -0,0 +1,42 @@
+package com.doertutorial;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Times every rest client call from request filter to response filter into {@link OutboundLatency}.
+ * Error responses also get the duration as a header, for {@link ExtraJsonAugmenter}.
+ * Calls that fail without a response (connection errors) are not recorded.
+ */
+@Provider
+public class OutboundLatencyFilter implements ClientRequestFilter, ClientResponseFilter {
+    static final String START_NANOS = "doertutorial.start-nanos";
+
+    @Inject
+    OutboundLatency outboundLatency;
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        requestContext.setProperty(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        if (!(requestContext.getProperty(START_NANOS) instanceof Long start)) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        String endpoint = CatchUriFilter.uriTemplate(requestContext.getProperty(CatchUriFilter.INVOKED_METHOD));
+        if (endpoint == null) {
+            endpoint = ExtraJsonAugmenter.uriTemplate(String.valueOf(requestContext.getUri()));
+        }
+        outboundLatency.record(endpoint, requestContext.getMethod(), responseContext.getStatus(), nanos);
+        if (responseContext.getStatus() >= 400) {
+            responseContext.getHeaders().add(ExtraJsonAugmenter.DOERTUTORIAL_DURATION_NANOS, Long.toString(nanos));
+        }
+    }
+}
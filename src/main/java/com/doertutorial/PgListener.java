@@ -0,0 +1,128 @@
+package com.doertutorial;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps one database connection in LISTEN mode and dispatches Postgres notifications to subscribers.
+ * A channel can have several subscribers.
+ * Notifications sent while the connection is down are lost, so subscribers get {@code onReconnect} callback
+ * after every (re)connect to resynchronize their state.
+ */
+@ApplicationScoped
+public class PgListener {
+    /**
+     * Identifies this application instance in notification payloads, so it can skip its own notifications.
+     */
+    public static final String NODE_ID = UUID.randomUUID().toString().substring(0, 8);
+    /**
+     * {@code application_name} of the connections of this instance, which database triggers put into their
+     * notifications instead of {@link #NODE_ID}.
+     */
+    public static final String APPLICATION_NAME = "doertutorial-" + NODE_ID;
+
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    @Inject
+    DataSource ds;
+
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread thread;
+
+    public synchronized void listen(String channel, Consumer<String> onNotification, Runnable onReconnect) {
+        subscriptions.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>())
+                .add(new Subscription(onNotification, onReconnect));
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, "pg-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public synchronized void onApplicationShutdown(@Observes ShutdownEvent shutdown) {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection con = ds.getConnection()) {
+                con.setAutoCommit(true);
+                PGConnection pgConnection = con.unwrap(PGConnection.class);
+                Map<String, List<Subscription>> listening = new ConcurrentHashMap<>();
+                while (running) {
+                    listenNewChannels(con, listening);
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            for (Subscription subscription : listening.getOrDefault(notification.getName(), List.of())) {
+                                dispatch(subscription, notification);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    Log.warnf("LISTEN connection failed. Reconnecting in %d ms. %s", RECONNECT_DELAY_MS, e.getMessage());
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    private void listenNewChannels(Connection con, Map<String, List<Subscription>> listening) throws SQLException {
+        for (var entry : subscriptions.entrySet()) {
+            if (!listening.containsKey(entry.getKey())) {
+                try (Statement st = con.createStatement()) {
+                    st.execute("LISTEN " + entry.getKey());
+                }
+                listening.put(entry.getKey(), entry.getValue());
+                Log.infof("Listening to %s", entry.getKey());
+                for (Subscription subscription : entry.getValue()) {
+                    subscription.onReconnect().run();
+                }
+            }
+        }
+    }
+
+    private static void dispatch(Subscription subscription, PGNotification notification) {
+        try {
+            subscription.onNotification().accept(notification.getParameter());
+        } catch (Exception e) {
+            Log.warnf(e, "Failed to handle notification on %s: %s", notification.getName(), notification.getParameter());
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            running = false;
+        }
+    }
+
+    private record Subscription(Consumer<String> onNotification, Runnable onReconnect) {
+    }
+}
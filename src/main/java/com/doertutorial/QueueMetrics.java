@@ -0,0 +1,92 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Number of tasks waiting in each Doer status, as {@code doer_queue_depth}, and age of the oldest one,
+ * as {@code doer_queue_oldest_age_seconds}.
+ * <p>
+ * The tasks are counted on a sampling interval with {@link TaskDao#findQueueStats}, not per scrape, so
+ * the database cost does not depend on how many scrapers there are. The oldest age is computed at scrape time
+ * from the sampled creation time, so it keeps growing between samples. Statuses that have emptied
+ * report zero instead of disappearing.
+ */
+@ApplicationScoped
+public class QueueMetrics {
+    @ConfigProperty(name = "doertutorial.queue-metrics.enabled", defaultValue = "true")
+    boolean enabled;
+    @Inject
+    TaskDao taskDao;
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, TaskDao.QueueStat> stats = new ConcurrentHashMap<>();
+
+    @Scheduled(every = "${doertutorial.queue-metrics.interval:15s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sample() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            update(taskDao.findQueueStats());
+        } catch (SQLException e) {
+            Log.warnf(e, "Failed to sample task queues");
+        }
+    }
+
+    void update(List<TaskDao.QueueStat> sampled) {
+        Map<String, TaskDao.QueueStat> current = new HashMap<>();
+        for (TaskDao.QueueStat stat : sampled) {
+            current.put(stat.status(), stat);
+        }
+        Set<String> emptied = Set.copyOf(stats.keySet());
+        for (String status : emptied) {
+            if (!current.containsKey(status)) {
+                stats.put(status, new TaskDao.QueueStat(status, 0, null));
+            }
+        }
+        current.forEach((status, stat) -> {
+            if (stats.put(status, stat) == null) {
+                registerGauges(status);
+            }
+        });
+    }
+
+    double depth(String status) {
+        TaskDao.QueueStat stat = stats.get(status);
+        return stat == null ? 0 : stat.count();
+    }
+
+    double oldestAgeSeconds(String status) {
+        TaskDao.QueueStat stat = stats.get(status);
+        if (stat == null || stat.oldest() == null) {
+            return 0;
+        }
+        long ageMillis = registry.config().clock().wallTime() - stat.oldest().toEpochMilli();
+        return Math.max(0, ageMillis) / 1000.0;
+    }
+
+    private void registerGauges(String status) {
+        Gauge.builder("doer.queue.depth", this, metrics -> metrics.depth(status))
+                .tag("status", status)
+                .register(registry);
+        Gauge.builder("doer.queue.oldest.age", this, metrics -> metrics.oldestAgeSeconds(status))
+                .tag("status", status)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,18 @@
+package com.doertutorial;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Records the duration and the outcome of every {@code @AcceptStatus} method of the annotated bean,
+ * see {@link StepMetricsInterceptor}.
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface StepMetrics {
+}
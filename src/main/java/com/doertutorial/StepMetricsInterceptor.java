@@ -0,0 +1,104 @@
+package com.doertutorial;
+
+import com.doer.AcceptStatus;
+import com.doer.Task;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times Doer steps as {@code doer_step_seconds} per class and method, and counts their results as
+ * {@code doer_step_results_total} with {@code outcome} success or exception and the exception type.
+ * <p>
+ * ArC intercepts calls on {@code this} too, so steps fused by {@link OrderProcessor#runInlineSteps} are recorded
+ * like the ones Doer runs. Methods without {@code @AcceptStatus} pass through untouched.
+ * Each step is also reported with the statuses it moved the task between to the {@link WorkflowHeatmap}. A step
+ * that runs inline steps at its end is reported with the status it set itself, which is the one the first inline
+ * step accepted, not the one the task ends up in.
+ */
+@StepMetrics
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class StepMetricsInterceptor {
+    static final String NONE = "none";
+    static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+    @Inject
+    MeterRegistry registry;
+    @Inject
+    WorkflowHeatmap heatmap;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+    // Steps running on this thread, innermost first
+    private final ThreadLocal<Deque<Running>> running = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @AroundInvoke
+    Object record(InvocationContext context) throws Exception {
+        Method method = context.getMethod();
+        if (method.getAnnotationsByType(AcceptStatus.class).length == 0) {
+            return context.proceed();
+        }
+        Task task = context.getParameters().length > 0 && context.getParameters()[0] instanceof Task t ? t : null;
+        String fromStatus = task == null ? null : task.getStatus();
+        Deque<Running> steps = running.get();
+        Running outer = steps.peek();
+        if (outer != null && outer.task == task && outer.setStatus == null) {
+            // Called by the outer step, so this is the status the outer step set
+            outer.setStatus = fromStatus;
+        }
+        Running current = new Running(task);
+        steps.push(current);
+        long start = System.nanoTime();
+        String exception = NONE;
+        try {
+            return context.proceed();
+        } catch (Exception | Error e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            steps.pop();
+            if (steps.isEmpty()) {
+                running.remove();
+            }
+            Timer timer = timer(method);
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            registry.counter("doer.step.results",
+                    "class", method.getDeclaringClass().getSimpleName(),
+                    "method", method.getName(),
+                    "outcome", NONE.equals(exception) ? "success" : "exception",
+                    "exception", exception).increment();
+            String toStatus = current.setStatus != null ? current.setStatus : task == null ? null : task.getStatus();
+            heatmap.record(method.getDeclaringClass().getName() + "." + method.getName(), timer, fromStatus,
+                    toStatus, !NONE.equals(exception));
+        }
+    }
+
+    private Timer timer(Method method) {
+        return timers.computeIfAbsent(method, key -> Timer.builder("doer.step")
+                .tag("class", key.getDeclaringClass().getSimpleName())
+                .tag("method", key.getName())
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .register(registry));
+    }
+
+    private static final class Running {
+        final Task task;
+        String setStatus;
+
+        Running(Task task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.doertutorial;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Direct access to Doer's {@code tasks} table for bulk operations, which {@code DoerService} performs one row at a time.
+ * Tasks created here are not known to the Doer queues until they are reloaded from the database.
+ */
+@ApplicationScoped
+@Transactional
+public class TaskDao {
+    @Inject
+    DataSource ds;
+
+    /**
+     * Version and modification time of the task, without the task logs and extra json {@code DoerService} loads.
+     * Doer bumps the version on every save.
+     *
+     * @return null if there is no such task
+     */
+    public TaskStamp findTaskStamp(long taskId) throws SQLException {
+        String sql = "SELECT version, modified FROM tasks WHERE id = ?";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setLong(1, taskId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new TaskStamp(rs.getInt("version"),
+                        OrderDao.odtToInstant(rs.getObject("modified", OffsetDateTime.class)));
+            }
+        }
+    }
+
+    public List<Long> insertTasks(String status, int count) throws SQLException {
+        String sql = "INSERT INTO tasks (status) SELECT ? FROM generate_series(1, ?) RETURNING id";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, status);
+            pst.setInt(2, count);
+            List<Long> ids = new ArrayList<>(count);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            if (ids.size() != count) {
+                throw new IllegalStateException("INSERT ... RETURNING id call failed");
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Moves the task from one of the expected statuses to the given status, unless Doer is running it right now.
+     * A failing task is retried by Doer according to the {@code @OnException} of the step accepting the new status.
+     *
+     * @return false if the task is in progress or in another status
+     */
+    public boolean updateStatus(long taskId, String status, boolean failing, String... expectedStatuses)
+            throws SQLException {
+        String sql = "UPDATE tasks SET status = ?, failing_since = CASE WHEN ? THEN coalesce(failing_since, now()) END, " +
+                "modified = now(), version = version + 1 " +
+                "WHERE id = ? AND status = ANY(?) AND NOT in_progress";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, status);
+            pst.setBoolean(2, failing);
+            pst.setLong(3, taskId);
+            pst.setArray(4, con.createArrayOf("varchar", expectedStatuses));
+            return pst.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Sets {@code failing_since} of a task that Doer saved as not failing, so the retry schedule of a step
+     * also covers the attempts that fail outside of it.
+     *
+     * @return false if the task is in progress or in another status
+     */
+    public boolean restoreFailingSince(long taskId, Instant failingSince, String expectedStatus) throws SQLException {
+        String sql = "UPDATE tasks SET failing_since = ?, modified = now(), version = version + 1 " +
+                "WHERE id = ? AND status = ? AND NOT in_progress";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setObject(1, failingSince.atOffset(ZoneOffset.UTC));
+            pst.setLong(2, taskId);
+            pst.setString(3, expectedStatus);
+            return pst.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Moves tasks that stay in the given status longer than {@code age} to {@code newStatus} and marks them failing.
+     *
+     * @return ids of the moved tasks
+     */
+    public List<Long> failStaleTasks(String status, Duration age, String newStatus) throws SQLException {
+        String sql = "UPDATE tasks SET status = ?, failing_since = coalesce(failing_since, now()), " +
+                "modified = now(), version = version + 1 " +
+                "WHERE status = ? AND NOT in_progress AND modified < now() - ? * INTERVAL '1 millisecond' " +
+                "RETURNING id";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setString(1, newStatus);
+            pst.setString(2, status);
+            pst.setLong(3, age.toMillis());
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Restores the original status of up to {@code limit} oldest tasks whose status starts with the parked prefix.
+     *
+     * @return number of restored tasks
+     */
+    public int unparkTasks(String parkedPrefix, int limit) throws SQLException {
+        // The literal LIKE pattern lets Postgres use the partial tasks_parked_idx.
+        String sql = "UPDATE tasks SET status = substr(status, ?), modified = now(), version = version + 1 " +
+                "WHERE id IN (SELECT id FROM tasks WHERE status LIKE 'Parked %' AND starts_with(status, ?) " +
+                "AND NOT in_progress ORDER BY created LIMIT ?)";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setInt(1, parkedPrefix.length() + 1);
+            pst.setString(2, parkedPrefix);
+            pst.setInt(3, limit);
+            return pst.executeUpdate();
+        }
+    }
+
+    /**
+     * Number of tasks and creation time of the oldest one for every status, finished tasks (null status) excluded.
+     * Both columns are in {@code tasks_status_idx}, so Postgres answers with an index-only scan of the queued tasks,
+     * already grouped in index order.
+     */
+    public List<QueueStat> findQueueStats() throws SQLException {
+        String sql = "SELECT status, count(*), min(created) FROM tasks WHERE status IS NOT NULL GROUP BY status";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            List<QueueStat> stats = new ArrayList<>();
+            while (rs.next()) {
+                stats.add(new QueueStat(rs.getString(1), rs.getLong(2),
+                        OrderDao.odtToInstant(rs.getObject(3, OffsetDateTime.class))));
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Serializes task_logs partition maintenance across application instances, until the transaction ends.
+     * Also bounds the wait for the table locks that creating and dropping partitions take.
+     *
+     * @return false if another instance holds the lock
+     */
+    public boolean tryLockTaskLogPartitions() throws SQLException {
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            st.execute("SET LOCAL lock_timeout = '5s'");
+            try (ResultSet rs = st.executeQuery("SELECT pg_try_advisory_xact_lock(hashtext('task_logs_partitions'))")) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    public List<String> findTaskLogPartitions() throws SQLException {
+        String sql = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'task_logs'::regclass ORDER BY c.relname";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql);
+             ResultSet rs = pst.executeQuery()) {
+            List<String> names = new ArrayList<>();
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+            return names;
+        }
+    }
+
+    public void createTaskLogPartition(String name, LocalDate day, boolean unlogged) throws SQLException {
+        // DDL takes no bind parameters; the name and the bounds are generated, not user input.
+        String sql = "CREATE " + (unlogged ? "UNLOGGED " : "") + "TABLE IF NOT EXISTS " + name + " PARTITION OF task_logs " +
+                "FOR VALUES FROM ('" + day + " 00:00:00+00') TO ('" + day.plusDays(1) + " 00:00:00+00')";
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    public void dropTaskLogPartition(String name) throws SQLException {
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            st.execute("ALTER TABLE task_logs DETACH PARTITION " + name);
+            st.execute("DROP TABLE " + name);
+        }
+    }
+
+    /**
+     * Builds the missing partition indexes of {@code task_logs_error_signature_idx}, which V2026.10.16.7 creates
+     * on the partitioned table only, and attaches them. Runs outside a transaction, as CONCURRENTLY requires,
+     * under the session form of the lock of {@link #tryLockTaskLogPartitions}.
+     *
+     * @return the partitions indexed, none if another instance holds the lock
+     */
+    public List<String> indexTaskLogPartitions() throws SQLException {
+        String missing = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'task_logs'::regclass AND NOT EXISTS (" +
+                "SELECT 1 FROM pg_inherits ii JOIN pg_index x ON x.indexrelid = ii.inhrelid " +
+                "WHERE ii.inhparent = 'task_logs_error_signature_idx'::regclass AND x.indrelid = c.oid) " +
+                "ORDER BY c.relname";
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT pg_try_advisory_lock(hashtext('task_logs_partitions'))")) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    return List.of();
+                }
+            }
+            try {
+                List<String> partitions = new ArrayList<>();
+                try (ResultSet rs = st.executeQuery(missing)) {
+                    while (rs.next()) {
+                        partitions.add(rs.getString(1));
+                    }
+                }
+                for (String partition : partitions) {
+                    String index = partition + "_error_signature_idx";
+                    // A failed build leaves an INVALID index behind, which can not be attached
+                    st.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+                    st.execute("CREATE INDEX CONCURRENTLY " + index + " ON " + partition +
+                            " (((extra_json -> 'response' ->> 'signature_id')::BIGINT)) WHERE extra_json IS NOT NULL");
+                    st.execute("ALTER INDEX task_logs_error_signature_idx ATTACH PARTITION " + index);
+                }
+                return partitions;
+            } finally {
+                st.execute("SELECT pg_advisory_unlock(hashtext('task_logs_partitions'))");
+            }
+        }
+    }
+
+    /**
+     * Days (UTC) of the rows in {@code task_logs_default}. Postgres refuses to create a partition for them.
+     */
+    public Set<LocalDate> findDefaultTaskLogDays() throws SQLException {
+        String sql = "SELECT DISTINCT (created AT TIME ZONE 'UTC')::DATE FROM task_logs_default WHERE created IS NOT NULL";
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            Set<LocalDate> days = new TreeSet<>();
+            while (rs.next()) {
+                days.add(rs.getObject(1, LocalDate.class));
+            }
+            return days;
+        }
+    }
+
+    /**
+     * Moves the rows of the day from {@code task_logs_default} to a new partition of their own. The default partition
+     * stays locked until commit, so that no row of the day lands in it before the partition is attached.
+     *
+     * @return the number of rows moved
+     */
+    public int moveDefaultTaskLogs(String name, LocalDate day, boolean unlogged) throws SQLException {
+        String from = "'" + day + " 00:00:00+00'";
+        String to = "'" + day.plusDays(1) + " 00:00:00+00'";
+        try (Connection con = ds.getConnection(); Statement st = con.createStatement()) {
+            st.execute("LOCK TABLE task_logs_default IN ACCESS EXCLUSIVE MODE");
+            st.execute("CREATE " + (unlogged ? "UNLOGGED " : "") + "TABLE " + name + " (LIKE task_logs INCLUDING DEFAULTS)");
+            int moved = st.executeUpdate("WITH moved AS (DELETE FROM task_logs_default " +
+                    "WHERE created >= " + from + " AND created < " + to + " RETURNING *) " +
+                    "INSERT INTO " + name + " SELECT * FROM moved");
+            st.execute("ALTER TABLE task_logs ATTACH PARTITION " + name + " FOR VALUES FROM (" + from + ") TO (" + to + ")");
+            return moved;
+        }
+    }
+
+    /**
+     * Applies the retention of the daily partitions to {@code task_logs_default}.
+     *
+     * @return the number of rows deleted
+     */
+    public int deleteDefaultTaskLogs(LocalDate oldestKept) throws SQLException {
+        String sql = "DELETE FROM task_logs_default WHERE created < ?";
+        try (Connection con = ds.getConnection(); PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setObject(1, oldestKept.atStartOfDay().atOffset(ZoneOffset.UTC));
+            return pst.executeUpdate();
+        }
+    }
+
+    public record TaskStamp(int version, Instant modified) {
+    }
+
+    public record QueueStat(String status, long count, Instant oldest) {
+    }
+}
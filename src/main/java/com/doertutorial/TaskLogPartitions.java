@@ -0,0 +1,189 @@
+package com.doertutorial;
+
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains the daily partitions of {@code task_logs}, which Doer writes in every step transaction.
+ * <p>
+ * Partition {@code task_logs_pYYYYMMDD} ends with that day (UTC). Partitions are created a few days ahead,
+ * and dropped as a whole once the whole day is older than the retention, so old logs never cost a DELETE
+ * or a vacuum of the table Doer inserts into. Optionally new partitions are UNLOGGED: inserts skip the WAL,
+ * and the logs of the current partitions are lost if PostgreSQL crashes.
+ * <p>
+ * Rows of days that had no partition in time land in {@code task_logs_default}. They are moved to partitions
+ * of their own while the day is kept, and deleted once it is older than the retention.
+ * <p>
+ * Partitions that existed before an index was added to {@code task_logs} get their part of it built without
+ * blocking inserts, see {@link TaskDao#indexTaskLogPartitions}.
+ */
+@ApplicationScoped
+public class TaskLogPartitions {
+    static final String PREFIX = "task_logs_p";
+    static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @ConfigProperty(name = "doertutorial.task-logs.partitioning.enabled", defaultValue = "true")
+    boolean enabled;
+    @ConfigProperty(name = "doertutorial.task-logs.retention", defaultValue = "30d")
+    Duration retention;
+    @ConfigProperty(name = "doertutorial.task-logs.partitions-ahead", defaultValue = "7")
+    int partitionsAhead;
+    @ConfigProperty(name = "doertutorial.task-logs.unlogged", defaultValue = "false")
+    boolean unlogged;
+    @Inject
+    TaskDao taskDao;
+
+    private LocalDate defaultRowsWarnedOn;
+
+    /**
+     * Moves, creates and drops in transactions of their own, so that retention keeps working while a partition
+     * can not be created, and the other way round.
+     */
+    @Scheduled(every = "1h", delayed = "10s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        try {
+            moveDefaultRows(today);
+        } catch (SQLException | RuntimeException e) {
+            Log.errorf(e, "Failed to move task_logs_default rows to partitions");
+        }
+        try {
+            createPartitions(today);
+        } catch (SQLException | RuntimeException e) {
+            Log.errorf(e, "Failed to create task_logs partitions");
+        }
+        try {
+            dropPartitions(today);
+        } catch (SQLException | RuntimeException e) {
+            Log.errorf(e, "Failed to drop task_logs partitions");
+        }
+        try {
+            for (String name : taskDao.indexTaskLogPartitions()) {
+                Log.infof("Built the error signature index of task_logs partition %s", name);
+            }
+        } catch (SQLException | RuntimeException e) {
+            Log.errorf(e, "Failed to index task_logs partitions");
+        }
+    }
+
+    @Transactional
+    void moveDefaultRows(LocalDate today) throws SQLException {
+        if (!taskDao.tryLockTaskLogPartitions()) {
+            return;
+        }
+        Set<LocalDate> defaultDays = taskDao.findDefaultTaskLogDays();
+        if (defaultDays.isEmpty()) {
+            return;
+        }
+        if (!today.equals(defaultRowsWarnedOn)) {
+            defaultRowsWarnedOn = today;
+            Log.warnf("task_logs_default has rows for %s: partitions were missing", defaultDays);
+        }
+        for (LocalDate day : defaultDays) {
+            if (!day.isBefore(oldestKept(today))) {
+                int moved = taskDao.moveDefaultTaskLogs(partitionName(day), day, unlogged);
+                Log.infof("Moved %d task_logs_default rows to a new partition for %s", moved, day);
+            }
+        }
+    }
+
+    @Transactional
+    void createPartitions(LocalDate today) throws SQLException {
+        if (!taskDao.tryLockTaskLogPartitions()) {
+            return;
+        }
+        Set<LocalDate> defaultDays = taskDao.findDefaultTaskLogDays();
+        for (LocalDate day : partitionsToCreate(taskDao.findTaskLogPartitions(), today, partitionsAhead, defaultDays)) {
+            taskDao.createTaskLogPartition(partitionName(day), day, unlogged);
+            Log.infof("Created task_logs partition for %s", day);
+        }
+    }
+
+    @Transactional
+    void dropPartitions(LocalDate today) throws SQLException {
+        if (!taskDao.tryLockTaskLogPartitions()) {
+            return;
+        }
+        for (String name : partitionsToDrop(taskDao.findTaskLogPartitions(), oldestKept(today))) {
+            taskDao.dropTaskLogPartition(name);
+            Log.infof("Dropped task_logs partition %s", name);
+        }
+        int deleted = taskDao.deleteDefaultTaskLogs(oldestKept(today));
+        if (deleted > 0) {
+            Log.infof("Deleted %d task_logs_default rows before %s", deleted, oldestKept(today));
+        }
+    }
+
+    LocalDate oldestKept(LocalDate today) {
+        return today.minusDays(retention.toDays());
+    }
+
+    static String partitionName(LocalDate day) {
+        return PREFIX + DAY.format(day);
+    }
+
+    /**
+     * @return the last day in the partition, or null if the table is not a daily partition
+     */
+    static LocalDate partitionDay(String name) {
+        if (!name.startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(PREFIX.length()), DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Days from today to {@code ahead} days later that are not covered yet. Days up to the last existing
+     * partition are never created again, the first partition also covers everything before it. Days with rows
+     * in the default partition are skipped: PostgreSQL refuses a partition that would take rows from it,
+     * {@link #moveDefaultRows} creates theirs.
+     */
+    static List<LocalDate> partitionsToCreate(List<String> partitions, LocalDate today, int ahead, Set<LocalDate> defaultDays) {
+        LocalDate last = null;
+        for (String name : partitions) {
+            LocalDate day = partitionDay(name);
+            if (day != null && (last == null || day.isAfter(last))) {
+                last = day;
+            }
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = last == null ? today : last.plusDays(1); !day.isAfter(today.plusDays(ahead)); day = day.plusDays(1)) {
+            if (!day.isBefore(today) && !defaultDays.contains(day)) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    static List<String> partitionsToDrop(List<String> partitions, LocalDate oldestKept) {
+        List<String> names = new ArrayList<>();
+        for (String name : partitions) {
+            LocalDate day = partitionDay(name);
+            if (day != null && day.isBefore(oldestKept)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,58 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Wakes up tasks inserted or moved to a new status by other application instances.
+ * <p>
+ * Triggers on {@code tasks} send {@link #CHANNEL} notifications with the ids of the changed tasks,
+ * or {@code *} for large statements. Notifications are tagged with the {@code application_name} of the writing
+ * connection, {@link PgListener#APPLICATION_NAME} of the instance, so an instance skips the changes its own Doer
+ * already knows about. The cached orders of the listed tasks are dropped before the tasks are reloaded: the step
+ * that moved a task on may have changed its order, and the {@link OrderCache#CHANNEL} notification of that change
+ * can come after this one. Large statements only insert tasks or restore parked and stale ones, which leaves
+ * orders unchanged.
+ * Notifications missed while disconnected are covered by a full queue reload on reconnect,
+ * and Doer's own periodic reload stays as the last resort.
+ */
+@ApplicationScoped
+public class TaskNotifications {
+    public static final String CHANNEL = "tasks_changed";
+
+    @ConfigProperty(name = "doertutorial.task-notifications.enabled", defaultValue = "true")
+    boolean enabled;
+    @Inject
+    PgListener pgListener;
+    @Inject
+    DoerService doerService;
+    @Inject
+    OrderCache orderCache;
+
+    public void onApplicationStarted(@Observes StartupEvent startup) {
+        if (enabled) {
+            pgListener.listen(CHANNEL, this::onNotification, doerService::triggerQueuesReloadFromDb);
+        }
+    }
+
+    void onNotification(String payload) {
+        // payload: application name|id,id,... or application name|*
+        int separator = payload.lastIndexOf('|');
+        if (separator < 0 || PgListener.APPLICATION_NAME.equals(payload.substring(0, separator))) {
+            return;
+        }
+        String ids = payload.substring(separator + 1);
+        if ("*".equals(ids)) {
+            doerService.triggerQueuesReloadFromDb();
+            return;
+        }
+        for (String id : ids.split(",")) {
+            orderCache.invalidateTask(Long.parseLong(id));
+            doerService.triggerTaskReloadFromDb(Long.valueOf(id));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import com.doer.Task;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.inject.Inject;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parks tasks whose step would call a service with an open {@link CircuitBreaker}, or could not get a slot
+ * of its {@link AimdLimiter} within {@code doertutorial.outbound.max-wait}.
+ * <p>
+ * A parked task gets status {@code "Parked <service>: <original status>"}, which no step accepts, so it takes neither
+ * a worker nor an {@code @OnException} retry while the service is down. When the breaker half-opens, the oldest
+ * parked tasks are given back to Doer as probes. While it is closed, they are given back in batches of the free
+ * slots of the limiter. Breakers are local, so an instance whose breaker is closed only because it has not called
+ * the service yet releases no more than one batch: its calls either succeed or open its breaker too.
+ * <p>
+ * Tasks parked for lack of a slot wait for one, not for the next {@link #checkBreakers} run: while the instance has
+ * such tasks, every slot its limiter releases gives back the next batch, one unparking at a time per service.
+ */
+@ApplicationScoped
+public class TaskParking {
+    static final String PARKED = "Parked ";
+    static final List<String> SERVICES = List.of(GuardedWarehouse.SERVICE, GuardedBank.SERVICE);
+
+    @Inject
+    OutboundGuard guard;
+    @Inject
+    TaskDao taskDao;
+    @Inject
+    DoerService doerService;
+    @Inject
+    MeterRegistry registry;
+    @Inject
+    TransactionHooks transactionHooks;
+
+    // Tasks this instance parked for lack of a slot and has not seen given back yet, by service
+    private final Map<String, AtomicInteger> parkedBusy = new ConcurrentHashMap<>();
+    private final Set<String> unparking = ConcurrentHashMap.newKeySet();
+    // Slots are released on http client threads, unparking takes a database transaction.
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("task-unparking-", 0).factory());
+
+    public void onApplicationStarted(@Observes StartupEvent startup) {
+        for (String service : SERVICES) {
+            guard.limiter(service).addReleaseListener(() -> onSlotReleased(service));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Parks the task if the service does not accept calls now.
+     *
+     * @return true if the task was parked and the step must return without calling the service
+     */
+    public boolean parkIfUnavailable(Task task, String service) {
+        if (guard.permits(service)) {
+            return false;
+        }
+        park(task, service, "open");
+        return true;
+    }
+
+    /**
+     * Parks the task of a step whose call failed with {@link OutboundBusyException}, instead of holding
+     * the worker until a slot frees up or failing the step.
+     */
+    public void parkBusy(Task task, String service) {
+        park(task, service, "busy");
+        // The calls in flight may all end before the step commits, so the parked task looks for a slot itself too.
+        transactionHooks.afterCommit(() -> {
+            parkedBusy(service).incrementAndGet();
+            onSlotReleased(service);
+        });
+    }
+
+    private void park(Task task, String service, String reason) {
+        task.setStatus(parkedPrefix(service) + task.getStatus());
+        registry.counter("tasks.parked", "service", service, "reason", reason).increment();
+    }
+
+    static String parkedPrefix(String service) {
+        return PARKED + service + ": ";
+    }
+
+    void onBreakerTransition(@ObservesAsync CircuitBreaker.Transition transition) throws SQLException {
+        switch (transition.to()) {
+            case HALF_OPEN -> unpark(transition.service(), guard.breaker(transition.service()).getProbes());
+            case CLOSED -> unpark(transition.service(), batchSize(transition.service()));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Half-opens breakers that have been open long enough even when no calls are made (all tasks are parked),
+     * and releases the next batch of parked tasks of services with a closed breaker.
+     */
+    @Scheduled(every = "5s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void checkBreakers() throws SQLException {
+        for (String service : SERVICES) {
+            if (guard.breaker(service).state() == CircuitBreaker.State.CLOSED) {
+                unpark(service, batchSize(service));
+            }
+        }
+    }
+
+    void onSlotReleased(String service) {
+        if (parkedBusy(service).get() <= 0 || guard.breaker(service).state() != CircuitBreaker.State.CLOSED
+                || !unparking.add(service)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                unparkBusy(service);
+            } catch (SQLException | RuntimeException e) {
+                Log.warnf(e, "Failed to unpark tasks waiting for a slot of %s", service);
+            } finally {
+                unparking.remove(service);
+            }
+        });
+    }
+
+    private void unparkBusy(String service) throws SQLException {
+        int limit = batchSize(service);
+        int count = unpark(service, limit);
+        if (count < limit) {
+            // Nothing is left parked, whoever gave the rest back.
+            parkedBusy(service).set(0);
+        } else {
+            parkedBusy(service).updateAndGet(parked -> Math.max(0, parked - count));
+        }
+    }
+
+    private AtomicInteger parkedBusy(String service) {
+        return parkedBusy.computeIfAbsent(service, s -> new AtomicInteger());
+    }
+
+    private int batchSize(String service) {
+        AimdLimiter limiter = guard.limiter(service);
+        return Math.max(1, limiter.getLimit() - limiter.getInFlight());
+    }
+
+    private int unpark(String service, int limit) throws SQLException {
+        int count = taskDao.unparkTasks(parkedPrefix(service), limit);
+        if (count > 0) {
+            Log.debugf("Unparked %d tasks waiting for %s", count, service);
+            doerService.triggerQueuesReloadFromDb();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package com.doertutorial;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Runs in-memory side effects of database writes only once the surrounding transaction has completed.
+ */
+@ApplicationScoped
+public class TransactionHooks {
+    @Inject
+    TransactionSynchronizationRegistry registry;
+
+    /**
+     * Runs {@code onCommit} after the current transaction commits, or immediately when there is no transaction.
+     * {@code onRollback} (may be null) runs if the transaction does not commit.
+     */
+    public void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (registry.getTransactionKey() == null) {
+            onCommit.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    onCommit.run();
+                } else if (onRollback != null) {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+    public void afterCommit(Runnable onCommit) {
+        afterCompletion(onCommit, null);
+    }
+}
@@ -7,6 +7,9 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
 @RegisterRestClient(configKey = "warehouse")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
@@ -16,10 +19,25 @@ public interface Warehouse {
     @Path("warehouse/reserve")
     Reservation reserveGoods(Order order);
 
+    @POST
+    @Path("warehouse/reserve")
+    CompletionStage<Reservation> reserveGoodsAsync(Order order);
+
+    /**
+     * Bulk variant of {@link #reserveGoods}: one result per order, in order.
+     */
+    @POST
+    @Path("warehouse/reserve-batch")
+    List<ReservationResult> reserveGoodsBatch(List<Order> orders);
+
     @POST
     @Path("warehouse/ship")
     TrackId shipTheOrder(Order order);
 
+    @POST
+    @Path("warehouse/ship")
+    CompletionStage<TrackId> shipTheOrderAsync(Order order);
+
     @POST
     @Path("warehouse/cancel")
     void cancelReservation(Reservation reservation);
@@ -27,6 +45,12 @@ public interface Warehouse {
     record Reservation(String token) {
     }
 
+    /**
+     * Either the token of the reservation or the reason why the order could not be reserved.
+     */
+    record ReservationResult(String token, String error) {
+    }
+
     record TrackId(String token) {
     }
 }
@@ -0,0 +1,108 @@
+package com.doertutorial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The workflow graph Doer generates at build time into {@link #RESOURCE}.
+ * <p>
+ * Doer names step nodes {@code m<n>} with the qualified method name as tooltip, status nodes {@code s<n>} with
+ * the status as tooltip, and end nodes (status set to null) {@code n<n>}. Edges run from a status to the step
+ * accepting it and from a step to the statuses it sets; {@code @OnException} edges carry the retry policy as tooltip.
+ */
+public record WorkflowGraph(List<Node> nodes, List<Edge> edges) {
+    public static final String RESOURCE = "com/doer/generated/doer.dot";
+
+    private static final Pattern EDGE = Pattern.compile("^\\s*\"?(\\w+)\"?\\s*->\\s*\"?(\\w+)\"?\\s*(?:\\[(.*)])?");
+    private static final Pattern NODE = Pattern.compile("^\\s*\"?(\\w+)\"?\\s*\\[(.*)]");
+    private static final Set<String> KEYWORDS = Set.of("graph", "node", "edge", "digraph", "subgraph");
+    private static final Pattern ATTRIBUTE = Pattern.compile("(\\w+)\\s*=\\s*(?:\"((?:[^\"\\\\]|\\\\.)*)\"|([^\\s,;\\]]+))");
+
+    public enum Kind {
+        STEP, STATUS, END
+    }
+
+    /**
+     * @param name qualified method name of a step, status of a status node, null for an end node
+     */
+    public record Node(String id, Kind kind, String name, String label) {
+    }
+
+    public record Edge(String from, String to, String tooltip) {
+    }
+
+    /**
+     * @return null if the application was built without the generated graph
+     */
+    public static WorkflowGraph load() throws IOException {
+        try (InputStream in = WorkflowGraph.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            return in == null ? null : parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads node and edge statements, one per line as Doer writes them. Graph and default attribute
+     * statements are skipped.
+     */
+    static WorkflowGraph parse(String dot) {
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        List<Edge> edges = new ArrayList<>();
+        for (String line : dot.split("\\R")) {
+            Matcher edge = EDGE.matcher(line);
+            if (edge.find()) {
+                edges.add(new Edge(edge.group(1), edge.group(2), attributes(edge.group(3)).get("tooltip")));
+                continue;
+            }
+            Matcher node = NODE.matcher(line);
+            if (node.find() && kind(node.group(1)) != null) {
+                Map<String, String> attributes = attributes(node.group(2));
+                Kind kind = kind(node.group(1));
+                String name = kind == Kind.END ? null : attributes.get("tooltip");
+                String label = kind == Kind.STEP ? attributes.getOrDefault("label", name) : name;
+                nodes.put(node.group(1), new Node(node.group(1), kind, name, label));
+            }
+        }
+        // Nodes only mentioned in edges
+        for (Edge edge : edges) {
+            for (String id : List.of(edge.from(), edge.to())) {
+                if (!nodes.containsKey(id) && kind(id) != null) {
+                    nodes.put(id, new Node(id, kind(id), null, id));
+                }
+            }
+        }
+        return new WorkflowGraph(List.copyOf(nodes.values()), List.copyOf(edges));
+    }
+
+    private static Kind kind(String id) {
+        if (KEYWORDS.contains(id)) {
+            return null;
+        }
+        return switch (id.charAt(0)) {
+            case 'm' -> Kind.STEP;
+            case 's' -> Kind.STATUS;
+            case 'n' -> Kind.END;
+            default -> null;
+        };
+    }
+
+    private static Map<String, String> attributes(String list) {
+        Map<String, String> attributes = new HashMap<>();
+        if (list != null) {
+            Matcher matcher = ATTRIBUTE.matcher(list);
+            while (matcher.find()) {
+                String quoted = matcher.group(2);
+                attributes.put(matcher.group(1), quoted != null ? quoted.replaceAll("\\\\(.)", "$1") : matcher.group(3));
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,252 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Step executions and status transitions of the last {@code window}, overlaid on the {@link WorkflowGraph}.
+ * <p>
+ * {@link StepMetricsInterceptor} reports every step as it finishes, so building the heatmap costs nothing
+ * on the database. Steps get throughput, error rate and p95 latency, the latter from their {@code doer.step}
+ * timer, statuses get the rate of tasks entering them and the queue depth last sampled by {@link QueueMetrics},
+ * edges get the rate of tasks moving along them.
+ */
+@ApplicationScoped
+public class WorkflowHeatmap {
+    static final int SLOTS = 10;
+
+    @ConfigProperty(name = "doertutorial.workflow-heatmap.window", defaultValue = "5m")
+    Duration window;
+    @Inject
+    QueueMetrics queueMetrics;
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, StepStats> steps = new ConcurrentHashMap<>();
+    private final Map<Transition, Rolling> transitions = new ConcurrentHashMap<>();
+    volatile WorkflowGraph graph;
+
+    /**
+     * @param step       qualified method name, as in the graph
+     * @param fromStatus status the step accepted
+     * @param toStatus   status the step set, ignored when it failed
+     */
+    public void record(String step, Timer timer, String fromStatus, String toStatus, boolean failed) {
+        long now = now();
+        steps.computeIfAbsent(step, key -> new StepStats(timer, new Rolling(slotMillis()))).rolling.add(now, failed);
+        transitions.computeIfAbsent(new Transition(fromStatus, step), key -> new Rolling(slotMillis())).add(now, false);
+        if (!failed) {
+            transitions.computeIfAbsent(new Transition(step, toStatus), key -> new Rolling(slotMillis())).add(now, false);
+        }
+    }
+
+    /**
+     * @return null if the application was built without the generated graph
+     */
+    public Heatmap heatmap() {
+        WorkflowGraph workflow = graph();
+        if (workflow == null) {
+            return null;
+        }
+        long now = now();
+        Map<String, WorkflowGraph.Node> nodesById = new HashMap<>();
+        workflow.nodes().forEach(node -> nodesById.put(node.id(), node));
+
+        List<EdgeStats> edges = new ArrayList<>();
+        Map<String, Long> entered = new HashMap<>();
+        for (WorkflowGraph.Edge edge : workflow.edges()) {
+            WorkflowGraph.Node from = nodesById.get(edge.from());
+            WorkflowGraph.Node to = nodesById.get(edge.to());
+            if (from == null || to == null) {
+                continue;
+            }
+            Rolling rolling = transitions.get(new Transition(from.name(), to.name()));
+            long count = rolling == null ? 0 : rolling.sum(now)[0];
+            edges.add(new EdgeStats(edge, count, perMinute(count)));
+            entered.merge(to.id(), count, Long::sum);
+        }
+
+        List<NodeStats> nodes = new ArrayList<>();
+        for (WorkflowGraph.Node node : workflow.nodes()) {
+            if (node.kind() == WorkflowGraph.Kind.STEP) {
+                StepStats stats = node.name() == null ? null : steps.get(node.name());
+                long[] sum = stats == null ? new long[2] : stats.rolling.sum(now);
+                Double p95 = stats == null ? null : p95Millis(stats.timer);
+                nodes.add(new NodeStats(node, sum[0], perMinute(sum[0]), sum[1], p95, null));
+            } else {
+                long count = entered.getOrDefault(node.id(), 0L);
+                Long depth = node.kind() == WorkflowGraph.Kind.STATUS ? (long) queueMetrics.depth(node.name()) : null;
+                nodes.add(new NodeStats(node, count, perMinute(count), 0, null, depth));
+            }
+        }
+        return new Heatmap(window, nodes, edges);
+    }
+
+    /**
+     * @param count       step executions, or tasks entering the status
+     * @param errors      step executions that threw
+     * @param p95Millis   null for statuses and for steps that have not run
+     * @param queueDepth  tasks waiting in the status, null for steps and end nodes
+     */
+    public record NodeStats(WorkflowGraph.Node node, long count, double perMinute, long errors, Double p95Millis,
+                            Long queueDepth) {
+        public double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+    }
+
+    public record EdgeStats(WorkflowGraph.Edge edge, long count, double perMinute) {
+    }
+
+    public record Heatmap(Duration window, List<NodeStats> nodes, List<EdgeStats> edges) {
+
+        public JsonObject toJson() {
+            JsonArrayBuilder nodeArray = Json.createArrayBuilder();
+            for (NodeStats stats : nodes) {
+                JsonObjectBuilder json = Json.createObjectBuilder()
+                        .add("id", stats.node().id())
+                        .add("kind", stats.node().kind().name().toLowerCase(Locale.ROOT))
+                        .add("count", stats.count())
+                        .add("perMinute", round(stats.perMinute()));
+                if (stats.node().name() != null) {
+                    json.add("name", stats.node().name());
+                }
+                if (stats.node().kind() == WorkflowGraph.Kind.STEP) {
+                    json.add("errors", stats.errors()).add("errorRate", round(stats.errorRate()));
+                    if (stats.p95Millis() != null) {
+                        json.add("p95Ms", round(stats.p95Millis()));
+                    }
+                }
+                if (stats.queueDepth() != null) {
+                    json.add("queueDepth", stats.queueDepth());
+                }
+                nodeArray.add(json);
+            }
+            JsonArrayBuilder edgeArray = Json.createArrayBuilder();
+            for (EdgeStats stats : edges) {
+                JsonObjectBuilder json = Json.createObjectBuilder()
+                        .add("from", stats.edge().from())
+                        .add("to", stats.edge().to())
+                        .add("count", stats.count())
+                        .add("perMinute", round(stats.perMinute()));
+                if (stats.edge().tooltip() != null) {
+                    json.add("onException", stats.edge().tooltip());
+                }
+                edgeArray.add(json);
+            }
+            return Json.createObjectBuilder()
+                    .add("window", window.toString())
+                    .add("nodes", nodeArray)
+                    .add("edges", edgeArray)
+                    .build();
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+
+    WorkflowGraph graph() {
+        if (graph == null) {
+            try {
+                graph = WorkflowGraph.load();
+            } catch (IOException e) {
+                Log.warnf(e, "Failed to read %s", WorkflowGraph.RESOURCE);
+            }
+        }
+        return graph;
+    }
+
+    private double perMinute(long count) {
+        return count * 60_000.0 / window.toMillis();
+    }
+
+    private long slotMillis() {
+        return Math.max(1, window.toMillis() / SLOTS);
+    }
+
+    private long now() {
+        return registry.config().clock().wallTime();
+    }
+
+    private static Double p95Millis(Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return null;
+    }
+
+    private record StepStats(Timer timer, Rolling rolling) {
+    }
+
+    /**
+     * @param from status or qualified step name
+     * @param to   qualified step name, status, or null for the end of the workflow
+     */
+    private record Transition(String from, String to) {
+    }
+
+    /**
+     * Counts over the last {@link #SLOTS} slots; a slot is reset when the clock comes back to it.
+     */
+    static final class Rolling {
+        private final long slotMillis;
+        private final long[] slots = new long[SLOTS];
+        private final long[] counts = new long[SLOTS];
+        private final long[] errors = new long[SLOTS];
+
+        Rolling(long slotMillis) {
+            this.slotMillis = slotMillis;
+        }
+
+        synchronized void add(long now, boolean error) {
+            long slot = now / slotMillis;
+            int index = (int) (slot % SLOTS);
+            if (slots[index] != slot) {
+                slots[index] = slot;
+                counts[index] = 0;
+                errors[index] = 0;
+            }
+            counts[index]++;
+            if (error) {
+                errors[index]++;
+            }
+        }
+
+        /**
+         * @return count and errors of the slots within the window
+         */
+        synchronized long[] sum(long now) {
+            long current = now / slotMillis;
+            long[] sum = new long[2];
+            for (int i = 0; i < SLOTS; i++) {
+                if (current - slots[i] < SLOTS) {
+                    sum[0] += counts[i];
+                    sum[1] += errors[i];
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.doertutorial;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Live overlay of {@link WorkflowHeatmap} on the Doer workflow graph, as JSON or, for browsers, as SVG.
+ */
+@Path("workflow")
+public class WorkflowResource {
+    public static final String IMAGE_SVG = "image/svg+xml";
+
+    @Inject
+    WorkflowHeatmap workflowHeatmap;
+
+    @GET
+    @Path("heatmap")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String heatmap() {
+        return heatmapOrNotFound().toJson().toString();
+    }
+
+    @GET
+    @Path("heatmap")
+    @Produces(IMAGE_SVG)
+    public String heatmapSvg() {
+        return HeatmapSvg.render(heatmapOrNotFound());
+    }
+
+    private WorkflowHeatmap.Heatmap heatmapOrNotFound() {
+        WorkflowHeatmap.Heatmap heatmap = workflowHeatmap.heatmap();
+        if (heatmap == null) {
+            throw new NotFoundException("Workflow graph not found");
+        }
+        return heatmap;
+    }
+}
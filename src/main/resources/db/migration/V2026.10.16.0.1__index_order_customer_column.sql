@@ -0,0 +1,7 @@
+-- CONCURRENTLY does not block writes to orders; Flyway runs this script outside a transaction.
+-- A failed build leaves an INVALID ndx_orders_customer_created_id behind, drop it before running the migration again.
+-- Serves the customer lookups and the keyset pagination of GET /orders by customer (ORDER BY created, id).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_customer_created_id ON orders (customer, created, id);
+
+-- Nothing queries json_data by containment, the GIN index only made every UPDATE of json_data more expensive.
+DROP INDEX CONCURRENTLY IF EXISTS ndx_orders_json_data;
@@ -0,0 +1,5 @@
+-- customer is kept in json_data (the source of truth written by OrderDao) and mirrored into a typed column.
+-- Adding a STORED generated column rewrites the whole table under an ACCESS EXCLUSIVE lock: reads and writes
+-- of orders wait until it is done, so plan a maintenance window proportional to the table size.
+-- The index changes are in the next, non-transactional migration, so the lock is held for the rewrite only.
+ALTER TABLE orders ADD COLUMN customer VARCHAR GENERATED ALWAYS AS (json_data ->> 'customer') STORED;
@@ -0,0 +1,6 @@
+-- Every order has its own task, so lookups by task_id need neither ORDER BY nor LIMIT.
+-- CONCURRENTLY does not block writes to orders, and ndx_orders_task_id keeps serving the step loads until
+-- the unique index is valid; Flyway runs this script outside a transaction.
+-- A failed build leaves an INVALID ndx_orders_task_id_unique behind, drop it before running the migration again.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_task_id_unique ON orders (task_id);
+DROP INDEX CONCURRENTLY IF EXISTS ndx_orders_task_id;
@@ -0,0 +1,2 @@
+-- Tasks parked while the circuit breaker of an external service is open (see TaskParking).
+CREATE INDEX IF NOT EXISTS tasks_parked_idx ON tasks (status, created) WHERE status LIKE 'Parked %';
@@ -0,0 +1,33 @@
+-- Tells all application instances about new tasks and status changes (see TaskNotifications).
+-- Payload: application_name of the writer | comma separated task ids, or * when more than 100 tasks changed.
+CREATE OR REPLACE FUNCTION notify_tasks_changed() RETURNS TRIGGER AS $$
+DECLARE
+    changed_count INTEGER;
+    changed_ids TEXT;
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT count(*), string_agg(id::TEXT, ',') INTO changed_count, changed_ids
+        FROM (SELECT id FROM new_table WHERE status IS NOT NULL LIMIT 101) t;
+    ELSE
+        SELECT count(*), string_agg(id::TEXT, ',') INTO changed_count, changed_ids
+        FROM (SELECT n.id FROM new_table n JOIN old_table o ON o.id = n.id
+              WHERE n.status IS DISTINCT FROM o.status AND n.status IS NOT NULL AND NOT n.in_progress
+              LIMIT 101) t;
+    END IF;
+    IF changed_count > 100 THEN
+        changed_ids := '*';
+    END IF;
+    IF changed_count > 0 THEN
+        PERFORM pg_notify('tasks_changed', current_setting('application_name') || '|' || changed_ids);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER tasks_inserted_notify AFTER INSERT ON tasks
+    REFERENCING NEW TABLE AS new_table
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_tasks_changed();
+
+CREATE TRIGGER tasks_updated_notify AFTER UPDATE ON tasks
+    REFERENCING OLD TABLE AS old_table NEW TABLE AS new_table
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_tasks_changed();
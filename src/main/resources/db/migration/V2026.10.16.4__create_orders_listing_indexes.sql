@@ -0,0 +1,6 @@
+-- Keyset pagination of GET /orders: ORDER BY created, id, optionally filtered by status.
+-- The customer filter uses ndx_orders_customer_created_id of V2026.10.16.0.1.
+-- CONCURRENTLY does not block writes to orders; Flyway runs this script outside a transaction.
+-- A failed build leaves an INVALID index behind, drop it before running the migration again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_created_id ON orders (created, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_status_created_id ON orders (status, created, id);
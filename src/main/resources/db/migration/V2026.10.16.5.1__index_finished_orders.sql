@@ -0,0 +1,4 @@
+-- Archiver candidates, oldest first. Only finished orders are in the index.
+-- CONCURRENTLY does not block writes to orders; Flyway runs this script outside a transaction.
+-- A failed build leaves an INVALID ndx_orders_finished_modified behind, drop it before running the migration again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_finished_modified ON orders (modified) WHERE status IN ('SHIPPED', 'REJECTED');
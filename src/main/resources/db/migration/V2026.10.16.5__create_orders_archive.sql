@@ -0,0 +1,13 @@
+-- Shipped and rejected orders are moved here by OrderArchiver, so the hot orders table and its indexes
+-- only hold orders in progress and recently finished ones.
+CREATE TABLE orders_archive
+(
+    id UUID PRIMARY KEY,
+    created TIMESTAMP WITH TIME ZONE,
+    modified TIMESTAMP WITH TIME ZONE,
+    task_id BIGINT,
+    status VARCHAR,
+    json_data JSONB,
+    customer VARCHAR GENERATED ALWAYS AS (json_data ->> 'customer') STORED,
+    archived TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
@@ -0,0 +1,41 @@
+-- task_logs becomes range partitioned by day on created (UTC), so TaskLogPartitions can drop old logs
+-- instead of deleting them row by row. Existing rows become the partition ending with today.
+UPDATE task_logs SET created = 'epoch' WHERE created IS NULL;
+ALTER TABLE task_logs ALTER COLUMN created SET NOT NULL;
+-- Replaced by the (id, created) key of the partitioned table, which attaching the partition creates.
+ALTER TABLE task_logs DROP CONSTRAINT task_logs_pkey;
+ALTER TABLE task_logs RENAME TO task_logs_unpartitioned;
+
+CREATE TABLE task_logs (
+    id BIGINT DEFAULT nextval('id_generator'::regclass),
+    task_id BIGINT NOT NULL,
+    created TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    initial_status VARCHAR,
+    final_status VARCHAR,
+    class_name VARCHAR,
+    method_name VARCHAR,
+    duration_ms BIGINT,
+    exception_type VARCHAR,
+    extra_json JSON,
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+DO
+$$
+    DECLARE
+        today DATE := (now() AT TIME ZONE 'UTC')::DATE;
+        day   DATE;
+    BEGIN
+        EXECUTE format('ALTER TABLE task_logs_unpartitioned RENAME TO %I', 'task_logs_p' || to_char(today, 'YYYYMMDD'));
+        EXECUTE format('ALTER TABLE task_logs ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)',
+                       'task_logs_p' || to_char(today, 'YYYYMMDD'), (today + 1) || ' 00:00:00+00');
+        FOR i IN 1..7 LOOP
+            day := today + i;
+            EXECUTE format('CREATE TABLE %I PARTITION OF task_logs FOR VALUES FROM (%L) TO (%L)',
+                           'task_logs_p' || to_char(day, 'YYYYMMDD'), day || ' 00:00:00+00', (day + 1) || ' 00:00:00+00');
+        END LOOP;
+    END
+$$;
+
+-- Keeps steps working if partitions were not created in time. TaskLogPartitions warns when it is not empty.
+CREATE TABLE task_logs_default PARTITION OF task_logs DEFAULT;
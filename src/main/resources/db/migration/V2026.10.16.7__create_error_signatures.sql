@@ -0,0 +1,21 @@
+-- Distinct error responses of external services, recorded by ExtraJsonAugmenter. task_logs.extra_json keeps
+-- only the signature id and the occurrence number instead of a copy of the response.
+CREATE TABLE error_signatures
+(
+    id BIGINT DEFAULT nextval('id_generator'::regclass) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL UNIQUE,
+    method VARCHAR,
+    uri_template VARCHAR,
+    status INTEGER NOT NULL,
+    response JSONB,
+    first_seen TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    last_seen TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    occurrences BIGINT NOT NULL DEFAULT 1
+);
+
+-- Task logs of a signature. Partial: most log rows have no extra_json.
+-- ON ONLY: building it on the existing partitions here would block the inserts of every step for the whole build.
+-- The index of the partitioned table stays invalid until TaskLogPartitions has built the index of each existing
+-- partition CONCURRENTLY and attached it; partitions created from now on get theirs when they are created.
+CREATE INDEX IF NOT EXISTS task_logs_error_signature_idx ON ONLY task_logs (((extra_json -> 'response' ->> 'signature_id')::BIGINT))
+    WHERE extra_json IS NOT NULL;
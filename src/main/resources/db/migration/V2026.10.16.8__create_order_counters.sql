@@ -0,0 +1,62 @@
+-- Order counts by status, per customer and for all customers (customer = ''), read by GET /orders/stats.
+-- Kept up to date by the triggers below in the transaction that writes the orders. Every (customer, status)
+-- is split into up to 16 stripes picked by the writing backend, so concurrent transactions do not queue
+-- on one hot row; readers add up the stripes. OrderCounters reconciles the counts with the tables periodically.
+-- Archived orders stay counted: archiving moves them without changing their status.
+CREATE TABLE order_counters
+(
+    customer VARCHAR NOT NULL,
+    status VARCHAR NOT NULL,
+    stripe SMALLINT NOT NULL,
+    count BIGINT NOT NULL,
+    PRIMARY KEY (customer, status, stripe)
+);
+
+CREATE OR REPLACE FUNCTION count_order_statuses() RETURNS TRIGGER AS $$
+BEGIN
+    -- Rows are upserted in key order, so concurrent statements cannot deadlock on the counters.
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO order_counters AS c (customer, status, stripe, count)
+        SELECT k.customer, n.status, pg_backend_pid() % 16, count(*)
+        FROM new_table n
+        CROSS JOIN LATERAL (VALUES (''), (nullif(n.customer, ''))) AS k(customer)
+        WHERE n.status IS NOT NULL AND k.customer IS NOT NULL
+        GROUP BY k.customer, n.status
+        ORDER BY k.customer, n.status
+        ON CONFLICT (customer, status, stripe) DO UPDATE SET count = c.count + EXCLUDED.count;
+    ELSE
+        INSERT INTO order_counters AS c (customer, status, stripe, count)
+        SELECT k.customer, d.status, pg_backend_pid() % 16, sum(d.delta)
+        FROM (SELECT n.status, n.customer, 1 AS delta
+              FROM new_table n JOIN old_table o ON o.id = n.id
+              WHERE n.status IS DISTINCT FROM o.status OR n.customer IS DISTINCT FROM o.customer
+              UNION ALL
+              SELECT o.status, o.customer, -1
+              FROM new_table n JOIN old_table o ON o.id = n.id
+              WHERE n.status IS DISTINCT FROM o.status OR n.customer IS DISTINCT FROM o.customer) d
+        CROSS JOIN LATERAL (VALUES (''), (nullif(d.customer, ''))) AS k(customer)
+        WHERE d.status IS NOT NULL AND k.customer IS NOT NULL
+        GROUP BY k.customer, d.status
+        HAVING sum(d.delta) <> 0
+        ORDER BY k.customer, d.status
+        ON CONFLICT (customer, status, stripe) DO UPDATE SET count = c.count + EXCLUDED.count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_inserted_count AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_table
+    FOR EACH STATEMENT EXECUTE FUNCTION count_order_statuses();
+
+CREATE TRIGGER orders_updated_count AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS old_table NEW TABLE AS new_table
+    FOR EACH STATEMENT EXECUTE FUNCTION count_order_statuses();
+
+-- Existing orders, live and archived
+INSERT INTO order_counters (customer, status, stripe, count)
+SELECT k.customer, o.status, 0, count(*)
+FROM (SELECT status, customer FROM orders UNION ALL SELECT status, customer FROM orders_archive) o
+CROSS JOIN LATERAL (VALUES (''), (nullif(o.customer, ''))) AS k(customer)
+WHERE o.status IS NOT NULL AND k.customer IS NOT NULL
+GROUP BY k.customer, o.status;
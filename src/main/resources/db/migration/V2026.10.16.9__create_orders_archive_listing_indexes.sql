@@ -0,0 +1,5 @@
+-- GET /orders and the export merge orders_archive into the keyset order of ndx_orders_*_created_id.
+-- Built CONCURRENTLY so that the archiver keeps moving orders meanwhile; Flyway runs this script outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_archive_created_id ON orders_archive (created, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_archive_status_created_id ON orders_archive (status, created, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ndx_orders_archive_customer_created_id ON orders_archive (customer, created, id);
@@ -0,0 +1,100 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AimdLimiterTest {
+
+    long now;
+    AimdLimiter limiter;
+
+    @BeforeEach
+    void init() {
+        now = 0;
+        limiter = new AimdLimiter(4, 1, 8, Duration.ofSeconds(1), 0.5, () -> now);
+    }
+
+    @Test
+    void acquire__should_time_out_above_limit() throws Exception {
+        List<AimdLimiter.Permit> permits = acquire(4);
+
+        assertNull(limiter.acquire(Duration.ofMillis(10)));
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(0, limiter.getWaiting());
+
+        permits.get(0).onSuccess();
+        assertNotNull(limiter.acquire(Duration.ZERO));
+    }
+
+    @Test
+    void release__should_notify_listeners() throws Exception {
+        List<Integer> inFlight = new ArrayList<>();
+        limiter.addReleaseListener(() -> inFlight.add(limiter.getInFlight()));
+
+        acquire(2).get(0).onFailure();
+
+        assertEquals(List.of(1), inFlight);
+    }
+
+    @Test
+    void onSuccess__should_increase_limit_under_load() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            List<AimdLimiter.Permit> permits = acquire(4);
+            permits.forEach(AimdLimiter.Permit::onSuccess);
+        }
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void onSuccess__should_not_increase_unused_limit() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(Duration.ZERO).onSuccess();
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void onFailure__should_decrease_limit_once_per_round() throws Exception {
+        List<AimdLimiter.Permit> permits = acquire(4);
+        now += 1;
+
+        permits.forEach(AimdLimiter.Permit::onFailure);
+
+        assertEquals(2, limiter.getLimit());
+        now += 1;
+        limiter.acquire(Duration.ZERO).onFailure();
+        assertEquals(1, limiter.getLimit());
+        now += 1;
+        limiter.acquire(Duration.ZERO).onFailure();
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void onSuccess__should_decrease_limit_for_slow_call() throws Exception {
+        AimdLimiter.Permit permit = limiter.acquire(Duration.ZERO);
+        now += Duration.ofSeconds(2).toNanos();
+
+        permit.onSuccess();
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    private List<AimdLimiter.Permit> acquire(int count) throws InterruptedException {
+        List<AimdLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.acquire(Duration.ZERO));
+        }
+        return permits;
+    }
+}
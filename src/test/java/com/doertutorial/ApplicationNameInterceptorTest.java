@@ -0,0 +1,24 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ApplicationNameInterceptorTest {
+
+    @Mock
+    Connection connection;
+
+    @Test
+    void onConnectionCreate__should_tag_connection_with_node_id() throws Exception {
+        new ApplicationNameInterceptor().onConnectionCreate(connection);
+
+        verify(connection).setClientInfo("ApplicationName", "doertutorial-" + PgListener.NODE_ID);
+    }
+}
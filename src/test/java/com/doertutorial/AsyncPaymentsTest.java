@@ -0,0 +1,112 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import com.doer.Task;
+import com.doertutorial.Bank.Check;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.TransactionRunnerOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncPaymentsTest {
+    static final long TASK_ID = 42;
+
+    @Mock
+    Bank bank;
+    @Mock
+    OrderDao orderDao;
+    @Mock
+    TaskDao taskDao;
+    @Mock
+    DoerService doerService;
+    @Mock
+    TransactionHooks transactionHooks;
+    @Mock
+    TransactionRunnerOptions transaction;
+
+    AsyncPayments asyncPayments;
+    MockedStatic<QuarkusTransaction> quarkusTransaction;
+
+    @BeforeEach
+    void init() throws Exception {
+        asyncPayments = new AsyncPayments();
+        asyncPayments.bank = bank;
+        asyncPayments.orderDao = orderDao;
+        asyncPayments.taskDao = taskDao;
+        asyncPayments.doerService = doerService;
+        asyncPayments.transactionHooks = transactionHooks;
+        quarkusTransaction = mockStatic(QuarkusTransaction.class);
+        quarkusTransaction.when(QuarkusTransaction::requiringNew).thenReturn(transaction);
+        when(transaction.call(any())).thenAnswer(invocation -> invocation.<Callable<?>>getArgument(0).call());
+    }
+
+    @AfterEach
+    void close() {
+        quarkusTransaction.close();
+        asyncPayments.shutdown();
+    }
+
+    @Test
+    void requestPaymentAfterCommit__should_keep_failing_since_of_retried_payment() throws Exception {
+        Instant failingSince = Instant.parse("2026-10-16T10:00:00Z");
+        Task task = mock(Task.class);
+        when(task.getId()).thenReturn(TASK_ID);
+        when(task.getFailingSince()).thenReturn(failingSince);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionHooks).afterCommit(any());
+        when(bank.processPaymentAsync(any())).thenReturn(new CompletableFuture<>());
+
+        asyncPayments.requestPaymentAfterCommit(task, new Order());
+
+        InOrder inOrder = inOrder(taskDao, bank);
+        inOrder.verify(taskDao).restoreFailingSince(TASK_ID, failingSince, OrderProcessor.PAYMENT_REQUESTED);
+        inOrder.verify(bank).processPaymentAsync(any());
+    }
+
+    @Test
+    void completeStep__should_store_payment_of_requested_task() throws Exception {
+        Order order = new Order();
+        when(taskDao.updateStatus(TASK_ID, OrderProcessor.ORDER_PAID, false, OrderProcessor.PAYMENT_REQUESTED))
+                .thenReturn(true);
+        when(orderDao.findOrderByTaskId(TASK_ID)).thenReturn(order);
+
+        asyncPayments.completeStep(TASK_ID, new Check("tx-1"), 1);
+
+        verify(orderDao).updateChangedFields(order);
+        verify(doerService).triggerTaskReloadFromDb(TASK_ID);
+        verifyNoInteractions(bank);
+    }
+
+    @Test
+    void completeStep__should_cancel_payment_of_task_given_back() throws Exception {
+        when(taskDao.updateStatus(TASK_ID, OrderProcessor.ORDER_PAID, false, OrderProcessor.PAYMENT_REQUESTED))
+                .thenReturn(false);
+
+        asyncPayments.completeStep(TASK_ID, new Check("tx-1"), AsyncPayments.MAX_ATTEMPTS);
+
+        verify(bank).cancelPayment(new Check("tx-1"));
+        verifyNoInteractions(orderDao, doerService);
+    }
+}
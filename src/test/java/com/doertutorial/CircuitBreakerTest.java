@@ -0,0 +1,97 @@
+package com.doertutorial;
+
+import com.doertutorial.CircuitBreaker.State;
+import com.doertutorial.CircuitBreaker.Transition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    long now;
+    List<Transition> transitions;
+    CircuitBreaker breaker;
+
+    @BeforeEach
+    void init() {
+        now = 0;
+        transitions = new ArrayList<>();
+        breaker = new CircuitBreaker("bankapi", 3, Duration.ofSeconds(30), 1, () -> now, transitions::add);
+    }
+
+    @Test
+    void onFailure__should_open_after_threshold_consecutive_failures() {
+        fail(2);
+        breaker.tryAcquire();
+        breaker.onSuccess();
+        fail(2);
+        assertEquals(State.CLOSED, breaker.state());
+
+        fail(1);
+
+        assertEquals(State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(List.of(new Transition("bankapi", State.CLOSED, State.OPEN)), transitions);
+    }
+
+    @Test
+    void tryAcquire__should_let_only_probes_through_when_half_open() {
+        fail(3);
+        now += Duration.ofSeconds(30).toNanos();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.permits());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess__should_close_half_open_breaker() {
+        fail(3);
+        now += Duration.ofSeconds(30).toNanos();
+        breaker.tryAcquire();
+
+        breaker.onSuccess();
+
+        assertEquals(State.CLOSED, breaker.state());
+        assertEquals(List.of(State.OPEN, State.HALF_OPEN, State.CLOSED), transitions.stream().map(Transition::to).toList());
+    }
+
+    @Test
+    void onFailure__should_reopen_half_open_breaker() {
+        fail(3);
+        now += Duration.ofSeconds(30).toNanos();
+        breaker.tryAcquire();
+
+        breaker.onFailure();
+
+        assertEquals(State.OPEN, breaker.state());
+        now += Duration.ofSeconds(29).toNanos();
+        assertFalse(breaker.permits());
+    }
+
+    @Test
+    void onNotCalled__should_return_probe_permission() {
+        fail(3);
+        now += Duration.ofSeconds(30).toNanos();
+        breaker.tryAcquire();
+
+        breaker.onNotCalled();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+}
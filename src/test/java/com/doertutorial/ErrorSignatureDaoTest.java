@@ -0,0 +1,100 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ErrorSignatureDaoTest {
+    static final String FINGERPRINT = "f1";
+
+    @Mock
+    DataSource ds;
+    @Mock
+    Connection connection;
+    @Mock
+    PreparedStatement statement;
+    @Mock
+    ResultSet resultSet;
+    @Mock
+    TransactionHooks transactionHooks;
+
+    ErrorSignatureDao errorSignatureDao;
+
+    @BeforeEach
+    void init() throws Exception {
+        errorSignatureDao = new ErrorSignatureDao();
+        errorSignatureDao.ds = ds;
+        errorSignatureDao.transactionHooks = transactionHooks;
+        when(ds.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong("id")).thenReturn(7L);
+        when(resultSet.getLong("occurrences")).thenReturn(3L);
+    }
+
+    @Test
+    void recordOccurrence__should_store_signature_once() throws Exception {
+        assertEquals(new ErrorSignatureDao.Occurrence(7L, 3L), record());
+        assertEquals(new ErrorSignatureDao.Occurrence(7L, 4L), record());
+        assertEquals(new ErrorSignatureDao.Occurrence(7L, 5L), record());
+
+        verify(ds, times(1)).getConnection();
+    }
+
+    @Test
+    void flush__should_add_pending_occurrences_after_commit() throws Exception {
+        when(connection.createArrayOf(eq("bigint"), any())).thenReturn(mock(Array.class));
+        doAnswer(i -> {
+            i.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionHooks).afterCommit(any());
+        record();
+        record();
+        record();
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong("occurrences")).thenReturn(10L);
+
+        errorSignatureDao.flush();
+
+        verify(connection).prepareStatement(startsWith("SELECT id FROM error_signatures"));
+        verify(connection).prepareStatement(startsWith("UPDATE error_signatures s SET"));
+        verify(connection).createArrayOf("bigint", new Long[]{2L});
+        assertEquals(new ErrorSignatureDao.Occurrence(7L, 11L), record());
+    }
+
+    @Test
+    void flush__should_skip_signatures_without_pending_occurrences() throws Exception {
+        record();
+
+        errorSignatureDao.flush();
+
+        verify(ds, times(1)).getConnection();
+        verify(transactionHooks, never()).afterCommit(any());
+    }
+
+    private ErrorSignatureDao.Occurrence record() throws Exception {
+        return errorSignatureDao.recordOccurrence(FINGERPRINT, "POST", "bank/pay", 503, () -> "{}");
+    }
+}
@@ -0,0 +1,110 @@
+package com.doertutorial;
+
+import com.doer.Task;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExtraJsonAugmenterTest {
+
+    @Mock
+    ErrorSignatureDao errorSignatureDao;
+    @Mock
+    Response response;
+
+    @InjectMocks
+    ExtraJsonAugmenter extraJsonAugmenter;
+
+    JsonObjectBuilder extraJson;
+
+    @BeforeEach
+    void init() {
+        extraJson = Json.createObjectBuilder();
+    }
+
+    void stubResponse() {
+        when(response.getStatusInfo()).thenReturn(Response.Status.SERVICE_UNAVAILABLE);
+        when(response.getStatus()).thenReturn(503);
+        when(response.getHeaderString(ExtraJsonAugmenter.DOERTUTORIAL_METHOD)).thenReturn("POST");
+        when(response.getHeaderString(ExtraJsonAugmenter.DOERTUTORIAL_URI)).thenReturn("http://localhost:8085/warehouse/reserve");
+        when(response.getHeaderString(ExtraJsonAugmenter.DOERTUTORIAL_URI_TEMPLATE)).thenReturn("warehouse/reserve");
+        when(response.hasEntity()).thenReturn(true);
+        when(response.readEntity(InputStream.class))
+                .thenReturn(new ByteArrayInputStream("{\"error\":\"down\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void appendResponseInfo__should_reference_error_signature() throws Exception {
+        stubResponse();
+        String fingerprint = ExtraJsonAugmenter.fingerprint("POST", "warehouse/reserve", 503,
+                "{\"error\":\"down\"}".getBytes(StandardCharsets.UTF_8));
+        when(errorSignatureDao.recordOccurrence(eq(fingerprint), eq("POST"), eq("warehouse/reserve"), eq(503), any()))
+                .thenReturn(new ErrorSignatureDao.Occurrence(1001L, 42L));
+
+        extraJsonAugmenter.appendResponseInfo(new Task(), new WebApplicationException(response), extraJson);
+
+        JsonObject logged = extraJson.build().getJsonObject("response");
+        assertEquals(503, logged.getInt("status"));
+        assertEquals(1001L, logged.getJsonNumber("signature_id").longValue());
+        assertEquals(42L, logged.getJsonNumber("occurrence").longValue());
+    }
+
+    @Test
+    void appendResponseInfo__should_log_response_when_signature_fails() throws Exception {
+        stubResponse();
+        when(errorSignatureDao.recordOccurrence(anyString(), any(), any(), eq(503), any()))
+                .thenThrow(new SQLException("database is down too"));
+        when(response.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+        when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+
+        extraJsonAugmenter.appendResponseInfo(new Task(), new WebApplicationException(response), extraJson);
+
+        JsonObject logged = extraJson.build().getJsonObject("response");
+        assertEquals("http://localhost:8085/warehouse/reserve", logged.getString("uri"));
+        assertEquals("down", logged.getJsonObject("json_body").getString("error"));
+    }
+
+    @Test
+    void readBodyPrefix__should_stop_after_limit() {
+        when(response.hasEntity()).thenReturn(true);
+        when(response.readEntity(InputStream.class))
+                .thenReturn(new ByteArrayInputStream(new byte[ExtraJsonAugmenter.MAX_BODY_BYTES * 10]));
+
+        assertEquals(ExtraJsonAugmenter.MAX_BODY_BYTES + 1, ExtraJsonAugmenter.readBodyPrefix(response).length);
+    }
+
+    @Test
+    void fingerprint__should_differ_by_body() {
+        assertNotEquals(ExtraJsonAugmenter.fingerprint("POST", "warehouse/reserve", 503, new byte[]{1}),
+                ExtraJsonAugmenter.fingerprint("POST", "warehouse/reserve", 503, new byte[]{2}));
+    }
+
+    @Test
+    void uriTemplate__should_replace_id_segments() {
+        assertEquals("/orders/{id}/items/{id}",
+                ExtraJsonAugmenter.uriTemplate("http://localhost/orders/6f1c7d1a-5f43-4a0e-9a53-52a4bd7b8f0e/items/17?x=1"));
+    }
+}
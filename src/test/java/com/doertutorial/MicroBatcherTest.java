@@ -0,0 +1,94 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MicroBatcherTest {
+
+    ScheduledExecutorService timer;
+    List<List<Integer>> bulkCalls;
+
+    @BeforeEach
+    void init() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        bulkCalls = new ArrayList<>();
+    }
+
+    @AfterEach
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void submit__should_send_full_batch_at_once() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(3, Duration.ofHours(1), this::echo, timer, Runnable::run);
+
+        CompletableFuture<String> first = batcher.submit(1);
+        CompletableFuture<String> second = batcher.submit(2);
+        assertFalse(first.isDone());
+        CompletableFuture<String> third = batcher.submit(3);
+
+        assertEquals(List.of(List.of(1, 2, 3)), bulkCalls);
+        assertEquals("r1", first.join());
+        assertEquals("r2", second.join());
+        assertEquals("r3", third.join());
+    }
+
+    @Test
+    void submit__should_send_partial_batch_after_window() throws Exception {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(10, Duration.ofMillis(20), this::echo, timer, Runnable::run);
+
+        CompletableFuture<String> first = batcher.submit(1);
+        CompletableFuture<String> second = batcher.submit(2);
+
+        assertEquals("r2", second.get(5, TimeUnit.SECONDS));
+        assertEquals("r1", first.join());
+        synchronized (this) {
+            assertEquals(List.of(List.of(1, 2)), bulkCalls);
+        }
+    }
+
+    @Test
+    void await__should_rethrow_bulk_call_failure_to_every_item() {
+        IllegalStateException failure = new IllegalStateException("bank is down");
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(2, Duration.ofHours(1), items -> {
+            throw failure;
+        }, timer, Runnable::run);
+
+        CompletableFuture<String> first = batcher.submit(1);
+        CompletableFuture<String> second = batcher.submit(2);
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> MicroBatcher.await(first)));
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> MicroBatcher.await(second)));
+    }
+
+    @Test
+    void submit__should_fail_items_when_result_count_differs() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(2, Duration.ofHours(1), items -> List.of("r"),
+                timer, Runnable::run);
+
+        CompletableFuture<String> first = batcher.submit(1);
+        batcher.submit(2);
+
+        assertThrows(IllegalStateException.class, () -> MicroBatcher.await(first));
+    }
+
+    private synchronized List<String> echo(List<Integer> items) {
+        bulkCalls.add(items);
+        return items.stream().map(i -> "r" + i).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderArchiverTest {
+
+    @Mock
+    OrderDao orderDao;
+
+    @InjectMocks
+    OrderArchiver orderArchiver;
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        orderArchiver.registry = registry;
+        orderArchiver.enabled = true;
+        orderArchiver.age = Duration.ofDays(7);
+        orderArchiver.batchSize = 10;
+        orderArchiver.maxBatches = 3;
+        orderArchiver.registerMetrics();
+    }
+
+    @Test
+    void archiveFinishedOrders__should_stop_after_partial_batch() throws Exception {
+        when(orderDao.archiveFinishedOrders(Duration.ofDays(7), 10)).thenReturn(10, 4);
+
+        orderArchiver.archiveFinishedOrders();
+
+        verify(orderDao, times(2)).archiveFinishedOrders(Duration.ofDays(7), 10);
+        assertEquals(14, registry.counter("orders.archived").count());
+    }
+
+    @Test
+    void archiveFinishedOrders__should_stop_after_max_batches() throws Exception {
+        when(orderDao.archiveFinishedOrders(Duration.ofDays(7), 10)).thenReturn(10);
+
+        orderArchiver.archiveFinishedOrders();
+
+        verify(orderDao, times(3)).archiveFinishedOrders(Duration.ofDays(7), 10);
+    }
+
+    @Test
+    void archiveFinishedOrders__should_do_nothing_when_disabled() throws Exception {
+        orderArchiver.enabled = false;
+
+        orderArchiver.archiveFinishedOrders();
+
+        verifyNoInteractions(orderDao);
+    }
+}
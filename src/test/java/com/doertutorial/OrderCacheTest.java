@@ -0,0 +1,138 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderCacheTest {
+
+    OrderCache cache;
+
+    @BeforeEach
+    void init() {
+        cache = new OrderCache();
+        cache.enabled = true;
+        cache.maxSize = 2;
+        cache.ttl = Duration.ofMinutes(1);
+    }
+
+    @Test
+    void put__should_index_by_id_and_task_id() {
+        Order order = order(17L);
+
+        cache.put(order);
+
+        Order cached = cache.getByTaskId(17L);
+        assertEquals(order.getId(), cached.getId());
+        assertNotSame(order, cached);
+        assertNotSame(cached, cache.getById(order.getId()));
+    }
+
+    @Test
+    void put__should_evict_least_recently_used() {
+        Order first = order(1L);
+        Order second = order(2L);
+        cache.put(first);
+        cache.put(second);
+        cache.getById(first.getId());
+
+        cache.put(order(3L));
+
+        assertNotNull(cache.getById(first.getId()));
+        assertNull(cache.getById(second.getId()));
+        assertNull(cache.getByTaskId(2L));
+    }
+
+    @Test
+    void getById__should_expire_entries() {
+        cache.ttl = Duration.ZERO;
+        Order order = order(1L);
+        cache.put(order);
+
+        assertNull(cache.getById(order.getId()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put__should_skip_read_older_than_invalidation() {
+        Order order = order(1L);
+        long stamp = cache.stamp();
+
+        cache.invalidate(order.getId());
+        cache.put(order, stamp);
+
+        assertNull(cache.getById(order.getId()));
+    }
+
+    @Test
+    void put__should_keep_read_despite_invalidation_of_other_orders() {
+        Order order = order(1L);
+        long stamp = cache.stamp();
+
+        cache.invalidate(UUID.randomUUID());
+        cache.put(order, stamp);
+
+        assertNotNull(cache.getById(order.getId()));
+    }
+
+    @Test
+    void put__should_skip_read_older_than_forgotten_invalidations() {
+        Order order = order(1L);
+        long stamp = cache.stamp();
+
+        cache.invalidate(order.getId());
+        cache.invalidate(UUID.randomUUID());
+        cache.invalidate(UUID.randomUUID());
+        cache.put(order, stamp);
+
+        assertNull(cache.getById(order.getId()));
+    }
+
+    @Test
+    void put__should_skip_read_older_than_invalidate_all() {
+        Order order = order(1L);
+        long stamp = cache.stamp();
+
+        cache.invalidateAll();
+        cache.put(order, stamp);
+
+        assertNull(cache.getById(order.getId()));
+    }
+
+    @Test
+    void invalidateTask__should_drop_order_of_task() {
+        Order order = order(1L);
+        cache.put(order);
+
+        cache.invalidateTask(1L);
+
+        assertNull(cache.getById(order.getId()));
+        assertNull(cache.getByTaskId(1L));
+    }
+
+    @Test
+    void onNotification__should_ignore_own_node() {
+        Order order = order(1L);
+        cache.put(order);
+
+        cache.onNotification(OrderCache.notificationPayload(order));
+        assertNotNull(cache.getById(order.getId()));
+
+        cache.onNotification("other-node|" + order.getId() + "|1");
+        assertNull(cache.getById(order.getId()));
+    }
+
+    static Order order(long taskId) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setTaskId(taskId);
+        return order;
+    }
+}
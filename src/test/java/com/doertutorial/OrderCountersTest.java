@@ -0,0 +1,52 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderCountersTest {
+
+    @Mock
+    OrderDao orderDao;
+
+    @InjectMocks
+    OrderCounters orderCounters;
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        orderCounters.registry = registry;
+        orderCounters.enabled = true;
+        orderCounters.registerMetrics();
+    }
+
+    @Test
+    void reconcile__should_count_corrections() throws Exception {
+        when(orderDao.reconcileOrderCounters()).thenReturn(3, 0);
+
+        orderCounters.reconcile();
+        orderCounters.reconcile();
+
+        assertEquals(3, registry.counter("orders.counters.corrected").count());
+    }
+
+    @Test
+    void reconcile__should_do_nothing_when_disabled() throws Exception {
+        orderCounters.enabled = false;
+
+        orderCounters.reconcile();
+
+        verifyNoInteractions(orderDao);
+    }
+}
@@ -0,0 +1,114 @@
+package com.doertutorial;
+
+import com.doer.DoerAccessor;
+import com.doer.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderDaoTest {
+    static final String STATUS = OrderProcessor.GOODS_RESERVED;
+
+    @Mock
+    DataSource ds;
+    @Mock
+    Connection connection;
+    @Mock
+    PreparedStatement statement;
+    @Mock
+    ResultSet resultSet;
+    @Mock
+    TransactionHooks transactionHooks;
+
+    OrderDao orderDao;
+
+    @BeforeEach
+    void init() throws Exception {
+        OrderCache orderCache = new OrderCache();
+        orderCache.enabled = true;
+        orderCache.maxSize = 1000;
+        orderCache.ttl = Duration.ofMinutes(1);
+        orderDao = new OrderDao();
+        orderDao.ds = ds;
+        orderDao.orderCache = orderCache;
+        orderDao.transactionHooks = transactionHooks;
+        orderDao.prefetchSize = 100;
+        when(ds.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getString("status")).thenReturn(OrderStatus.PROCESSING.name());
+    }
+
+    @Test
+    void loadOrderForTask__should_run_one_query_per_batch() throws Exception {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getObject("id", UUID.class)).thenReturn(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(resultSet.getLong("task_id")).thenReturn(1L, 2L, 3L);
+
+        for (long taskId = 1; taskId <= 3; taskId++) {
+            assertEquals(taskId, orderDao.loadOrderForTask(task(taskId)).getTaskId());
+        }
+
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    @Test
+    void loadOrderForTask__should_read_own_order_while_batch_is_prefetched() throws Exception {
+        orderDao.prefetching.add(STATUS);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getObject("id", UUID.class)).thenReturn(UUID.randomUUID());
+        when(resultSet.getLong("task_id")).thenReturn(2L);
+
+        assertEquals(2L, orderDao.loadOrderForTask(task(2L)).getTaskId());
+
+        verify(connection).prepareStatement("SELECT * FROM orders WHERE task_id = ?");
+        verify(statement).setLong(1, 2L);
+    }
+
+    @Test
+    void findOrderStatuses__should_read_archived_orders_too() throws Exception {
+        UUID active = UUID.randomUUID();
+        UUID archived = UUID.randomUUID();
+        Array ids = mock(Array.class);
+        when(connection.createArrayOf(eq("uuid"), any())).thenReturn(ids);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getObject("id", UUID.class)).thenReturn(active, archived);
+
+        Map<UUID, OrderStatus> statuses = orderDao.findOrderStatuses(List.of(active, archived));
+
+        assertEquals(Map.of(active, OrderStatus.PROCESSING, archived, OrderStatus.PROCESSING), statuses);
+        verify(connection).prepareStatement(contains("FROM orders_archive WHERE id = ANY(?)"));
+        verify(statement).setArray(1, ids);
+        verify(statement).setArray(2, ids);
+    }
+
+    static Task task(long id) {
+        Task task = new Task();
+        DoerAccessor.assignTaskId(task, id);
+        task.setStatus(STATUS);
+        return task;
+    }
+}
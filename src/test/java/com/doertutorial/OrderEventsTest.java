@@ -0,0 +1,70 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderEventsTest {
+
+    OrderEvents orderEvents;
+    UUID orderId;
+    List<OrderStatus> received;
+
+    @BeforeEach
+    void init() {
+        orderEvents = new OrderEvents();
+        orderId = UUID.randomUUID();
+        received = new ArrayList<>();
+    }
+
+    @Test
+    void publish__should_deliver_each_status_once_and_in_order() {
+        OrderEvents.Watcher watcher = orderEvents.watch(orderId, received::add, () -> false);
+        watcher.deliver(OrderStatus.NEW);
+
+        orderEvents.publish(orderId, OrderStatus.PROCESSING);
+        orderEvents.publish(orderId, OrderStatus.PROCESSING);
+        orderEvents.publish(orderId, OrderStatus.NEW);
+        orderEvents.publish(UUID.randomUUID(), OrderStatus.SHIPPED);
+        orderEvents.publish(orderId, OrderStatus.SHIPPED);
+
+        assertEquals(List.of(OrderStatus.NEW, OrderStatus.PROCESSING, OrderStatus.SHIPPED), received);
+    }
+
+    @Test
+    void publish__should_drop_watcher_that_returns_false() {
+        orderEvents.watch(orderId, status -> received.add(status) && status != OrderStatus.PROCESSING, () -> false);
+
+        orderEvents.publish(orderId, OrderStatus.PROCESSING);
+        orderEvents.publish(orderId, OrderStatus.SHIPPED);
+
+        assertEquals(List.of(OrderStatus.PROCESSING), received);
+        assertEquals(0, orderEvents.watcherCount());
+    }
+
+    @Test
+    void onNotification__should_publish_status_of_other_node() {
+        orderEvents.watch(orderId, received::add, () -> false);
+
+        orderEvents.onNotification(PgListener.NODE_ID + "|" + orderId + "|17|PROCESSING");
+        orderEvents.onNotification("other-node|" + orderId + "|17|");
+        orderEvents.onNotification("other-node|" + orderId + "|17|REJECTED");
+
+        assertEquals(List.of(OrderStatus.REJECTED), received);
+    }
+
+    @Test
+    void removeClosedWatchers__should_drop_closed_watchers() {
+        orderEvents.watch(orderId, received::add, () -> true);
+        orderEvents.watch(orderId, received::add, () -> false);
+
+        orderEvents.removeClosedWatchers();
+
+        assertEquals(1, orderEvents.watcherCount());
+    }
+}
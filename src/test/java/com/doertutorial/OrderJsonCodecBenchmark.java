@@ -0,0 +1,122 @@
+package com.doertutorial;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link OrderJsonCodec} with the JsonObject based json_data mapping it replaced.
+ * <p>
+ * Run after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.doertutorial.OrderJsonCodecBenchmark
+ * </pre>
+ * The gc profiler reports allocation rate as {@code gc.alloc.rate.norm} (bytes/op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderJsonCodecBenchmark {
+
+    Order order;
+    String jsonData;
+
+    @Setup
+    public void setup() {
+        order = new Order();
+        order.setCustomer("Alice");
+        order.setItems("a pen, a pencil, 3 notebooks");
+        order.setReservationToken("8c1e7d1a-5f43-4a0e-9a53-52a4bd7b8f0e");
+        order.setPaymentTransactionId("tx-20250119-000001234");
+        jsonData = "{\"items\": \"a pen, a pencil, 3 notebooks\", \"customer\": \"Alice\", " +
+                "\"reservation_token\": \"8c1e7d1a-5f43-4a0e-9a53-52a4bd7b8f0e\", " +
+                "\"payment_transaction_id\": \"tx-20250119-000001234\"}";
+    }
+
+    @Benchmark
+    public String writeTree() {
+        return treeCreateJsonData(order);
+    }
+
+    @Benchmark
+    public String writeStreaming() {
+        return OrderJsonCodec.write(order);
+    }
+
+    @Benchmark
+    public Order readTree() {
+        Order result = new Order();
+        treeUpdateOrderFromJsonData(result, jsonData);
+        return result;
+    }
+
+    @Benchmark
+    public Order readStreaming() {
+        Order result = new Order();
+        OrderJsonCodec.read(result, jsonData);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderJsonCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+
+    // Previous OrderDao implementation, kept as the baseline.
+
+    static String treeCreateJsonData(Order order) {
+        JsonObjectBuilder b = Json.createObjectBuilder();
+        if (order.getCustomer() != null) {
+            b.add("customer", order.getCustomer());
+        }
+        if (order.getItems() != null) {
+            b.add("items", order.getItems());
+        }
+        if (order.getRejectReason() != null) {
+            b.add("reject_reason", order.getRejectReason());
+        }
+        if (order.getReservationToken() != null) {
+            b.add("reservation_token", order.getReservationToken());
+        }
+        if (order.getPaymentTransactionId() != null) {
+            b.add("payment_transaction_id", order.getPaymentTransactionId());
+        }
+        if (order.getDeliveryTrackingId() != null) {
+            b.add("delivery_tracking_id", order.getDeliveryTrackingId());
+        }
+        return b.build().toString();
+    }
+
+    static void treeUpdateOrderFromJsonData(Order order, String jsonData) {
+        JsonObject json = Json.createReader(new StringReader(jsonData)).readObject();
+        order.setCustomer(json.getString("customer", null));
+        order.setItems(json.getString("items", null));
+        order.setRejectReason(json.getString("reject_reason", null));
+        order.setReservationToken(json.getString("reservation_token", null));
+        order.setPaymentTransactionId(json.getString("payment_transaction_id", null));
+        order.setDeliveryTrackingId(json.getString("delivery_tracking_id", null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.doertutorial;
+
+import jakarta.json.Json;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderJsonCodecTest {
+
+    Order order;
+
+    @BeforeEach
+    void init() {
+        order = new Order();
+        order.setCustomer("Alice \"A\" \\ Smith");
+        order.setItems("a pen\nö €");
+        order.setReservationToken("test-token");
+        order.setDeliveryTrackingId("test-tracking-id");
+    }
+
+    @Test
+    void write__should_match_json_object_builder_output() {
+        String expected = Json.createObjectBuilder()
+                .add("customer", order.getCustomer())
+                .add("items", order.getItems())
+                .add("reservation_token", order.getReservationToken())
+                .add("delivery_tracking_id", order.getDeliveryTrackingId())
+                .build()
+                .toString();
+
+        assertEquals(expected, OrderJsonCodec.write(order));
+    }
+
+    @Test
+    void write__should_produce_empty_object_for_empty_order() {
+        assertEquals("{}", OrderJsonCodec.write(new Order()));
+    }
+
+    @Test
+    void write__should_write_only_given_fields() {
+        var fields = EnumSet.of(Order.Field.STATUS, Order.Field.RESERVATION_TOKEN, Order.Field.REJECT_REASON);
+
+        assertEquals("{\"reservation_token\":\"test-token\"}", OrderJsonCodec.write(order, fields));
+        assertArrayEquals(new String[]{"reject_reason"}, OrderDao.removedJsonKeys(order, EnumSet.of(
+                Order.Field.REJECT_REASON, Order.Field.RESERVATION_TOKEN)));
+    }
+
+    @Test
+    void read__should_restore_written_fields() {
+        Order result = new Order();
+
+        OrderJsonCodec.read(result, OrderJsonCodec.write(order));
+
+        assertEquals(order.getCustomer(), result.getCustomer());
+        assertEquals(order.getItems(), result.getItems());
+        assertNull(result.getRejectReason());
+        assertEquals(order.getReservationToken(), result.getReservationToken());
+        assertNull(result.getPaymentTransactionId());
+        assertEquals(order.getDeliveryTrackingId(), result.getDeliveryTrackingId());
+    }
+
+    @Test
+    void read__should_accept_jsonb_normalized_text() {
+        Order result = new Order();
+
+        OrderJsonCodec.read(result, "{\"items\": \"a pen\", \"customer\": \"Alice\", \"reject_reason\": \"No\"}");
+
+        assertEquals("Alice", result.getCustomer());
+        assertEquals("a pen", result.getItems());
+        assertEquals("No", result.getRejectReason());
+    }
+
+    @Test
+    void read__should_skip_unknown_and_non_string_values() {
+        order.setRejectReason("stale");
+
+        OrderJsonCodec.read(order, "{\"extra\": {\"a\": [1, 2]}, \"customer\": 17, \"items\": [\"x\"], \"reject_reason\": null}");
+
+        assertNull(order.getCustomer());
+        assertNull(order.getItems());
+        assertNull(order.getRejectReason());
+        assertNull(order.getReservationToken());
+    }
+}
@@ -9,16 +9,25 @@ import com.doertutorial.Warehouse.TrackId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+
 import static com.doertutorial.OrderProcessor.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -31,9 +40,17 @@ class OrderProcessorTest {
     @Mock
     OrderDao orderDao;
     @Mock
+    TaskDao taskDao;
+    @Mock
+    TransactionHooks transactionHooks;
+    @Mock
     Warehouse warehouse;
     @Mock
     Bank bank;
+    @Mock
+    AsyncPayments asyncPayments;
+    @Mock
+    TaskParking taskParking;
 
     @InjectMocks
     OrderProcessor orderProcessor;
@@ -65,6 +82,63 @@ class OrderProcessorTest {
         assertEquals(NEW_ORDER_CREATED, task.getStatus());
     }
 
+    @Test
+    void saveNewOrder__should_run_inline_start_step() throws Exception {
+        orderProcessor.inlineStepsEnabled = true;
+        doAnswer(i -> {
+            task = i.getArgument(0);
+            DoerAccessor.assignTaskId(task, 720L);
+            return null;
+        }).when(doerService).insert(any(Task.class));
+
+        orderProcessor.saveNewOrder(order);
+
+        assertEquals(OrderStatus.PROCESSING, order.getStatus());
+        assertEquals(ORDER_PROCESSING_STARTED, task.getStatus());
+    }
+
+    @Test
+    void saveNewOrders__should_create_tasks_in_bulk() throws Exception {
+        Order order2 = new Order();
+        when(taskDao.insertTasks(NEW_ORDER_CREATED, 2))
+                .thenReturn(List.of(801L, 802L));
+
+        orderProcessor.saveNewOrders(List.of(order, order2));
+
+        assertEquals(801L, order.getTaskId());
+        assertEquals(802L, order2.getTaskId());
+        assertEquals(OrderStatus.NEW, order.getStatus());
+        assertEquals(OrderStatus.NEW, order2.getStatus());
+        verify(orderDao).insertOrders(List.of(order, order2));
+        verifyNoInteractions(doerService);
+    }
+
+    @Test
+    void importOrders__should_reload_queues_after_commit_when_tasks_created() throws Exception {
+        InputStream input = new ByteArrayInputStream(new byte[0]);
+        when(orderDao.importOrders(OrderDao.CopyFormat.CSV, input, true))
+                .thenReturn(new OrderDao.ImportResult(3, 2, 1));
+        ArgumentCaptor<Runnable> afterCommit = ArgumentCaptor.forClass(Runnable.class);
+
+        orderProcessor.importOrders(OrderDao.CopyFormat.CSV, input, true);
+
+        verify(transactionHooks).afterCommit(afterCommit.capture());
+        verifyNoInteractions(doerService);
+        afterCommit.getValue().run();
+        verify(doerService).triggerQueuesReloadFromDb();
+    }
+
+    @Test
+    void importOrders__should_not_reload_queues_without_tasks() throws Exception {
+        InputStream input = new ByteArrayInputStream(new byte[0]);
+        when(orderDao.importOrders(OrderDao.CopyFormat.NDJSON, input, false))
+                .thenReturn(new OrderDao.ImportResult(3, 3, 0));
+
+        orderProcessor.importOrders(OrderDao.CopyFormat.NDJSON, input, false);
+
+        verifyNoInteractions(transactionHooks, doerService);
+    }
+
     @Test
     void startOrderProcessing__should_update_order_status() {
         orderProcessor.startOrderProcessing(task, order);
@@ -103,6 +177,52 @@ class OrderProcessorTest {
         assertEquals(ORDER_PAID, task.getStatus());
     }
 
+    @Test
+    void payOrder__should_park_task_without_calling_bank() {
+        task.setStatus(GOODS_RESERVED);
+        when(taskParking.parkIfUnavailable(task, GuardedBank.SERVICE)).thenReturn(true);
+
+        orderProcessor.payOrder(task, order);
+
+        verifyNoInteractions(bank);
+        assertNull(order.getPaymentTransactionId());
+    }
+
+    @Test
+    void payOrder__should_park_task_when_bank_is_busy() {
+        task.setStatus(GOODS_RESERVED);
+        when(bank.processPayment(order)).thenThrow(new OutboundBusyException(GuardedBank.SERVICE));
+
+        orderProcessor.payOrder(task, order);
+
+        verify(taskParking).parkBusy(task, GuardedBank.SERVICE);
+        assertNull(order.getPaymentTransactionId());
+    }
+
+    @Test
+    void payOrder__should_leave_payment_to_async_path() {
+        orderProcessor.asyncPaymentsEnabled = true;
+
+        orderProcessor.payOrder(task, order);
+
+        verify(asyncPayments).requestPaymentAfterCommit(task, order);
+        verifyNoInteractions(bank);
+        assertNull(order.getPaymentTransactionId());
+        assertEquals(PAYMENT_REQUESTED, task.getStatus());
+    }
+
+    @Test
+    void payOrder__should_stop_async_retries_after_retry_period() {
+        orderProcessor.asyncPaymentsEnabled = true;
+        Task failing = spy(task);
+        doReturn(Instant.now().minus(PAYMENT_RETRY_DURING).minusSeconds(1)).when(failing).getFailingSince();
+
+        orderProcessor.payOrder(failing, order);
+
+        verifyNoInteractions(asyncPayments, bank);
+        assertEquals(PAYMENT_FAILED, failing.getStatus());
+    }
+
     @Test
     void reportNoPaymentForOrder__should_update_reject_reason() {
 
@@ -123,6 +243,19 @@ class OrderProcessorTest {
         assertEquals(ORDER_SHIPPED, task.getStatus());
     }
 
+    @Test
+    void shipOrder__should_run_inline_finish_step() {
+        orderProcessor.inlineStepsEnabled = true;
+        when(warehouse.shipTheOrder(order))
+                .thenReturn(new TrackId("test-tracking-number"));
+
+        orderProcessor.shipOrder(task, order);
+
+        assertEquals("test-tracking-number", order.getDeliveryTrackingId());
+        assertEquals(OrderStatus.SHIPPED, order.getStatus());
+        assertNull(task.getStatus());
+    }
+
     @Test
     void reportOrderNotShipped__should_update_reject_reason() {
         orderProcessor.reportOrderNotShipped(task, order);
@@ -169,6 +302,18 @@ class OrderProcessorTest {
         assertEquals(RESERVATION_CANCELLED, task.getStatus());
     }
 
+    @Test
+    void cancelReservation__should_run_inline_reject_step() {
+        orderProcessor.inlineStepsEnabled = true;
+        order.setReservationToken("test-token-7");
+
+        orderProcessor.cancelReservation(task, order);
+
+        verify(warehouse).cancelReservation(eq(new Reservation("test-token-7")));
+        assertEquals(OrderStatus.REJECTED, order.getStatus());
+        assertNull(task.getStatus());
+    }
+
     @Test
     void cancelReservation__should_skip_calling_warehouse() {
         order.setReservationToken(null);
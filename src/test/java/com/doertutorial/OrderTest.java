@@ -0,0 +1,68 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderTest {
+
+    Order order;
+
+    @BeforeEach
+    void init() {
+        order = new Order();
+        order.setTaskId(17L);
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setCustomer("Alice");
+        order.clearChanges();
+    }
+
+    @Test
+    void setters__should_track_changed_fields() {
+        order.setStatus(OrderStatus.REJECTED);
+        order.setRejectReason("test reason");
+
+        assertTrue(order.hasChanges());
+        assertEquals(Set.of(Order.Field.STATUS, Order.Field.REJECT_REASON), order.changedFields());
+    }
+
+    @Test
+    void setters__should_ignore_same_values() {
+        order.setTaskId(17L);
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setCustomer("Alice");
+        order.setReservationToken(null);
+
+        assertFalse(order.hasChanges());
+    }
+
+    @Test
+    void assignFieldsFrom__should_copy_change_state() {
+        Order other = new Order();
+        other.setItems("a pen");
+
+        order.assignFieldsFrom(other);
+
+        assertEquals(Set.of(Order.Field.ITEMS), order.changedFields());
+        other.clearChanges();
+        order.assignFieldsFrom(other);
+        assertFalse(order.hasChanges());
+    }
+
+    @Test
+    void copy__should_copy_fields_without_changes() {
+        order.setItems("pen");
+
+        Order copy = order.copy();
+
+        assertEquals("pen", copy.getItems());
+        assertEquals(17L, copy.getTaskId());
+        assertFalse(copy.hasChanges());
+        assertTrue(order.hasChanges());
+    }
+}
@@ -0,0 +1,106 @@
+package com.doertutorial;
+
+import com.doer.Task;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+import jakarta.json.bind.config.PropertyOrderStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code GET /orders/{id}} rendering with a Jsonb instance per request (the previous implementation)
+ * and with the shared instance streaming {@link OrdersResource.OrderView}.
+ * <p>
+ * Run after {@code mvn test-compile}:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.doertutorial.OrderViewBenchmark
+ * </pre>
+ * Throughput is in renderings per second, i.e. the serialization ceiling of the endpoint.
+ * The end-to-end counterpart is {@code OrderProcessingBenchmarkITCase.get_order_requests_per_second}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderViewBenchmark {
+
+    Order order;
+    Task task;
+    Jsonb shared;
+
+    @Setup
+    public void setup() {
+        order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setCreated(Instant.now());
+        order.setModified(Instant.now());
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setTaskId(1001L);
+        order.setCustomer("Alice");
+        order.setItems("a pen, a pencil, 3 notebooks");
+        order.setReservationToken("8c1e7d1a-5f43-4a0e-9a53-52a4bd7b8f0e");
+        task = new Task();
+        task.setStatus("Goods reserved");
+        shared = JsonbBuilder.create(jsonbConfig());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        shared.close();
+    }
+
+    @Benchmark
+    public String jsonbPerRequest() throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create(jsonbConfig())) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("order", order);
+            map.put("task", task);
+            return jsonb.toJson(map);
+        }
+    }
+
+    @Benchmark
+    public int sharedJsonbStreaming() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+        shared.toJson(new OrdersResource.OrderView(order, task), output);
+        return output.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderViewBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+
+    static JsonbConfig jsonbConfig() {
+        return new JsonbConfig()
+                .withFormatting(true)
+                .withNullValues(true)
+                .withPropertyOrderStrategy(PropertyOrderStrategy.LEXICOGRAPHICAL);
+    }
+}
@@ -0,0 +1,73 @@
+package com.doertutorial;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OrdersImportRouteTest {
+
+    @Test
+    void copyFormat__should_match_media_type_without_parameters() {
+        assertEquals(OrderDao.CopyFormat.CSV, OrdersImportRoute.copyFormat("text/csv; charset=UTF-8"));
+        assertEquals(OrderDao.CopyFormat.NDJSON, OrdersImportRoute.copyFormat("application/x-ndjson"));
+        assertNull(OrdersImportRoute.copyFormat("application/json"));
+        assertNull(OrdersImportRoute.copyFormat(null));
+    }
+
+    @Test
+    void isDataException__should_accept_sql_state_class_22_only() {
+        assertTrue(OrdersImportRoute.isDataException(new SQLException("bad uuid", "22P02")));
+        assertFalse(OrdersImportRoute.isDataException(new SQLException("connection lost", "08006")));
+        assertFalse(OrdersImportRoute.isDataException(new IllegalStateException()));
+    }
+
+    @Test
+    void resultJson__should_count_skipped_orders() {
+        assertEquals("{\"read\":5,\"imported\":3,\"skipped\":2,\"tasksCreated\":1}",
+                OrdersImportRoute.resultJson(new OrderDao.ImportResult(5, 3, 1)));
+    }
+
+    @Test
+    void contentLength__should_reject_malformed_values() {
+        assertEquals(1024L, OrdersImportRoute.contentLength("1024"));
+        assertThrows(NumberFormatException.class, () -> OrdersImportRoute.contentLength("12abc"));
+        assertThrows(NumberFormatException.class, () -> OrdersImportRoute.contentLength("-1"));
+        assertThrows(NumberFormatException.class, () -> OrdersImportRoute.contentLength("99999999999999999999"));
+    }
+
+    @Test
+    void handle__should_answer_400_to_malformed_content_length() {
+        OrdersImportRoute route = new OrdersImportRoute();
+        route.maxBodySize = new MemorySize(BigInteger.valueOf(1024));
+        route.orderProcessor = mock(OrderProcessor.class);
+        RoutingContext ctx = mock(RoutingContext.class);
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        HttpServerResponse response = mock(HttpServerResponse.class, RETURNS_SELF);
+        when(ctx.request()).thenReturn(request);
+        when(ctx.response()).thenReturn(response);
+        when(request.getHeader(HttpHeaders.CONTENT_TYPE)).thenReturn(OrdersResource.TEXT_CSV);
+        when(request.getHeader(HttpHeaders.CONTENT_LENGTH)).thenReturn("12abc");
+
+        route.handle(ctx);
+
+        verify(response).setStatusCode(400);
+        verifyNoInteractions(route.orderProcessor);
+    }
+}
@@ -0,0 +1,166 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrdersResourceTest {
+
+    @Mock
+    OrderDao orderDao;
+    @Mock
+    TaskDao taskDao;
+    @Mock
+    DoerService doerService;
+    @Mock
+    Request request;
+
+    @InjectMocks
+    OrdersResource ordersResource;
+
+    Order order;
+
+    @BeforeEach
+    void init() {
+        order = new Order();
+        order.setId(UUID.randomUUID());
+        order.setModified(Instant.parse("2026-10-16T10:15:30.123456Z"));
+        order.setTaskId(1001L);
+    }
+
+    @Test
+    void getOrder__should_answer_not_modified_without_loading_task() throws Exception {
+        TaskDao.TaskStamp stamp = new TaskDao.TaskStamp(7, Instant.parse("2026-10-16T10:15:31.5Z"));
+        when(orderDao.findOrderById(order.getId())).thenReturn(order);
+        when(taskDao.findTaskStamp(1001L)).thenReturn(stamp);
+        EntityTag etag = OrdersResource.orderViewTag(order, stamp);
+        when(request.evaluatePreconditions(any(Date.class), eq(etag))).thenReturn(Response.notModified(etag));
+
+        Response response = ordersResource.getOrder(order.getId(), request);
+
+        assertEquals(304, response.getStatus());
+        verifyNoInteractions(doerService);
+    }
+
+    @Test
+    void orderViewTag__should_change_with_order_and_task() {
+        EntityTag tag = OrdersResource.orderViewTag(order, new TaskDao.TaskStamp(7, null));
+
+        assertNotEquals(tag, OrdersResource.orderViewTag(order, new TaskDao.TaskStamp(8, null)));
+        order.setModified(order.getModified().plusNanos(1000));
+        assertNotEquals(tag, OrdersResource.orderViewTag(order, new TaskDao.TaskStamp(7, null)));
+    }
+
+    @Test
+    void orderViewLastModified__should_take_later_of_order_and_task_in_seconds() {
+        Date lastModified = OrdersResource.orderViewLastModified(order,
+                new TaskDao.TaskStamp(7, Instant.parse("2026-10-16T10:15:31.5Z")));
+
+        assertEquals(Date.from(Instant.parse("2026-10-16T10:15:31Z")), lastModified);
+    }
+
+    @Test
+    void writeOrderLine__should_write_single_line_without_null_fields() {
+        order.setCreated(Instant.parse("2026-10-16T10:15:29.5Z"));
+        order.setStatus(OrderStatus.NEW);
+        order.setCustomer("Alice");
+        order.setItems("a pen\na pencil");
+        StringWriter line = new StringWriter();
+
+        OrdersResource.writeOrderLine(line, order);
+
+        assertEquals("{\"id\":\"" + order.getId() + "\",\"created\":\"2026-10-16T10:15:29.500Z\"," +
+                "\"modified\":\"2026-10-16T10:15:30.123456Z\",\"status\":\"NEW\",\"taskId\":1001," +
+                "\"customer\":\"Alice\",\"items\":\"a pen\\na pencil\"}", line.toString());
+    }
+
+    @Test
+    void listOrders__should_reject_malformed_cursor() {
+        assertThrows(BadRequestException.class,
+                () -> ordersResource.listOrders(null, null, "2026-10-16T10:15:30Z", 10));
+        assertThrows(BadRequestException.class,
+                () -> ordersResource.listOrders(null, null, "yesterday," + order.getId(), 10));
+    }
+
+    @Test
+    void readOrderArray__should_read_every_order() {
+        List<Order> orders = OrdersResource.readOrderArray(stream("[{\"customer\":\"Alice\"}, {\"customer\":\"Bob\"}] "));
+
+        assertEquals(List.of("Alice", "Bob"), orders.stream().map(Order::getCustomer).toList());
+    }
+
+    @Test
+    void readOrderArray__should_reject_element_that_is_not_an_object() {
+        assertThrows(BadRequestException.class,
+                () -> OrdersResource.readOrderArray(stream("[{\"customer\":\"Alice\"}, 42, {\"customer\":\"Bob\"}]")));
+    }
+
+    @Test
+    void readOrderArray__should_reject_content_after_the_array() {
+        assertThrows(BadRequestException.class,
+                () -> OrdersResource.readOrderArray(stream("[{\"customer\":\"Alice\"}] {\"customer\":\"Bob\"}")));
+        assertThrows(BadRequestException.class,
+                () -> OrdersResource.readOrderArray(stream("[{\"customer\":\"Alice\"}")));
+    }
+
+    @Test
+    void readOrderArray__should_reject_batch_above_max_size() {
+        String json = "[" + String.join(",", Collections.nCopies(OrdersResource.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+        assertThrows(BadRequestException.class, () -> OrdersResource.readOrderArray(stream(json)));
+    }
+
+    @Test
+    void readOrderLines__should_reject_line_that_is_not_an_object() {
+        assertThrows(BadRequestException.class,
+                () -> OrdersResource.readOrderLines(stream("{\"customer\":\"Alice\"}\n[]\n")));
+    }
+
+    @Test
+    void getOrderStats__should_list_every_status_with_total() throws Exception {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        counts.put(OrderStatus.NEW, 2L);
+        counts.put(OrderStatus.PROCESSING, 0L);
+        counts.put(OrderStatus.SHIPPED, 40L);
+        counts.put(OrderStatus.REJECTED, 3L);
+        when(orderDao.countOrdersByStatus("Alice")).thenReturn(counts);
+
+        String json = ordersResource.getOrderStats("Alice");
+
+        assertEquals("{\"customer\":\"Alice\",\"statuses\":{\"NEW\":2,\"PROCESSING\":0,\"SHIPPED\":40," +
+                "\"REJECTED\":3},\"total\":45}", json);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,66 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.microprofile.config.Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboundGuardTest {
+    static final String SERVICE = "bankapi";
+
+    @Mock
+    Config config;
+
+    OutboundGuard guard;
+
+    @BeforeEach
+    void init() {
+        guard = new OutboundGuard();
+        guard.config = config;
+        guard.registry = new SimpleMeterRegistry();
+        guard.maxWait = Duration.ofSeconds(60);
+        when(config.getOptionalValue(anyString(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0).equals("doertutorial.outbound." + SERVICE + ".max-concurrent")
+                        ? Optional.of(1) : Optional.empty());
+    }
+
+    @AfterEach
+    void close() {
+        guard.shutdown();
+    }
+
+    @Test
+    void callAsync__should_fail_fast_without_free_slot() {
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        guard.callAsync(SERVICE, () -> inFlight);
+        AtomicBoolean called = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        assertThrows(OutboundBusyException.class, () -> guard.callAsync(SERVICE, () -> {
+            called.set(true);
+            return CompletableFuture.completedFuture("late");
+        }));
+
+        assertFalse(called.get());
+        assertEquals(0, Duration.ofNanos(System.nanoTime() - start).toSeconds());
+        inFlight.complete("done");
+        assertEquals(0, guard.limiter(SERVICE).getInFlight());
+    }
+}
@@ -0,0 +1,58 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundLatencyTest {
+
+    OutboundLatency outboundLatency;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        outboundLatency = new OutboundLatency();
+        outboundLatency.registry = registry;
+        outboundLatency.slowCallThreshold = Duration.ofSeconds(2);
+    }
+
+    @Test
+    void record__should_time_calls_per_endpoint_and_status() {
+        outboundLatency.record("warehouse/reserve", "POST", 200, TimeUnit.MILLISECONDS.toNanos(10));
+        outboundLatency.record("warehouse/reserve", "POST", 200, TimeUnit.MILLISECONDS.toNanos(30));
+        outboundLatency.record("warehouse/reserve", "POST", 503, TimeUnit.MILLISECONDS.toNanos(5));
+
+        Timer ok = registry.get("outbound.client.requests").tag("endpoint", "warehouse/reserve").tag("status", "200").timer();
+        assertEquals(2, ok.count());
+        assertEquals(30, ok.max(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("outbound.client.requests").tag("status", "503").timer().count());
+    }
+
+    @Test
+    void describe__should_add_percentiles() {
+        outboundLatency.record("bank/processPayment", "POST", 500, TimeUnit.SECONDS.toNanos(3));
+
+        JsonObject json = outboundLatency.describe("bank/processPayment", "POST", 500, TimeUnit.SECONDS.toNanos(3)).build();
+
+        assertEquals(3000, json.getInt("duration_ms"));
+        assertTrue(json.containsKey("p50"));
+        assertTrue(json.containsKey("p99"));
+        assertTrue(json.containsKey("p999"));
+    }
+
+    @Test
+    void isSlow__should_compare_with_threshold() {
+        assertTrue(outboundLatency.isSlow(TimeUnit.SECONDS.toNanos(2)));
+        assertFalse(outboundLatency.isSlow(TimeUnit.MILLISECONDS.toNanos(1999)));
+    }
+}
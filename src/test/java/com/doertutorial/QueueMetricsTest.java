@@ -0,0 +1,100 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QueueMetricsTest {
+
+    @Mock
+    TaskDao taskDao;
+
+    @InjectMocks
+    QueueMetrics queueMetrics;
+
+    MockClock clock;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        queueMetrics.registry = registry;
+        queueMetrics.enabled = true;
+    }
+
+    @Test
+    void sample__should_publish_depth_and_oldest_age_per_status() throws Exception {
+        Instant now = Instant.ofEpochMilli(clock.wallTime());
+        when(taskDao.findQueueStats()).thenReturn(List.of(
+                new TaskDao.QueueStat(OrderProcessor.GOODS_RESERVED, 12, now.minusSeconds(30)),
+                new TaskDao.QueueStat(OrderProcessor.ORDER_PAID, 3, now.minusSeconds(5))));
+
+        queueMetrics.sample();
+        clock.add(Duration.ofSeconds(10));
+
+        assertEquals(12, depth(OrderProcessor.GOODS_RESERVED));
+        assertEquals(40, oldestAge(OrderProcessor.GOODS_RESERVED));
+        assertEquals(3, depth(OrderProcessor.ORDER_PAID));
+        assertEquals(15, oldestAge(OrderProcessor.ORDER_PAID));
+    }
+
+    @Test
+    void sample__should_report_zero_for_emptied_status() throws Exception {
+        Instant now = Instant.ofEpochMilli(clock.wallTime());
+        when(taskDao.findQueueStats()).thenReturn(
+                List.of(new TaskDao.QueueStat(OrderProcessor.ORDER_PAID, 3, now)),
+                List.of());
+
+        queueMetrics.sample();
+        queueMetrics.sample();
+
+        assertEquals(0, depth(OrderProcessor.ORDER_PAID));
+        assertEquals(0, oldestAge(OrderProcessor.ORDER_PAID));
+    }
+
+    @Test
+    void sample__should_keep_last_values_when_query_fails() throws Exception {
+        Instant now = Instant.ofEpochMilli(clock.wallTime());
+        when(taskDao.findQueueStats()).thenReturn(List.of(new TaskDao.QueueStat(OrderProcessor.ORDER_PAID, 3, now)))
+                .thenThrow(new SQLException("connection refused"));
+
+        queueMetrics.sample();
+        queueMetrics.sample();
+
+        assertEquals(3, depth(OrderProcessor.ORDER_PAID));
+    }
+
+    @Test
+    void sample__should_do_nothing_when_disabled() {
+        queueMetrics.enabled = false;
+
+        queueMetrics.sample();
+
+        verifyNoInteractions(taskDao);
+    }
+
+    private double depth(String status) {
+        return registry.get("doer.queue.depth").tag("status", status).gauge().value();
+    }
+
+    private double oldestAge(String status) {
+        return registry.get("doer.queue.oldest.age").tag("status", status).gauge().value();
+    }
+}
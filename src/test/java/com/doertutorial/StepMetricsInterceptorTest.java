@@ -0,0 +1,119 @@
+package com.doertutorial;
+
+import com.doer.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.interceptor.InvocationContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StepMetricsInterceptorTest {
+
+    @Mock
+    InvocationContext context;
+    @Mock
+    InvocationContext inlineContext;
+    @Mock
+    WorkflowHeatmap heatmap;
+
+    StepMetricsInterceptor interceptor;
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new SimpleMeterRegistry();
+        interceptor = new StepMetricsInterceptor();
+        interceptor.registry = registry;
+        interceptor.heatmap = heatmap;
+    }
+
+    @Test
+    void record__should_time_successful_step() throws Exception {
+        Task task = new Task();
+        task.setStatus(OrderProcessor.GOODS_RESERVED);
+        when(context.getMethod()).thenReturn(OrderProcessor.class.getMethod("payOrder", Task.class, Order.class));
+        when(context.getParameters()).thenReturn(new Object[]{task, new Order()});
+        when(context.proceed()).thenAnswer(invocation -> {
+            task.setStatus(OrderProcessor.ORDER_PAID);
+            return null;
+        });
+
+        assertNull(interceptor.record(context));
+
+        assertEquals(1, registry.get("doer.step").tag("class", "OrderProcessor").tag("method", "payOrder")
+                .timer().count());
+        assertEquals(1, registry.get("doer.step.results").tag("method", "payOrder").tag("outcome", "success")
+                .tag("exception", "none").counter().count());
+        verify(heatmap).record(eq("com.doertutorial.OrderProcessor.payOrder"), any(), eq(OrderProcessor.GOODS_RESERVED),
+                eq(OrderProcessor.ORDER_PAID), eq(false));
+    }
+
+    @Test
+    void record__should_count_step_exception() throws Exception {
+        Task task = new Task();
+        task.setStatus(OrderProcessor.ORDER_PAID);
+        when(context.getMethod()).thenReturn(OrderProcessor.class.getMethod("shipOrder", Task.class, Order.class));
+        when(context.getParameters()).thenReturn(new Object[]{task, new Order()});
+        when(context.proceed()).thenThrow(new IllegalStateException("warehouse is down"));
+
+        assertThrows(IllegalStateException.class, () -> interceptor.record(context));
+
+        assertEquals(1, registry.get("doer.step").tag("method", "shipOrder").timer().count());
+        assertEquals(1, registry.get("doer.step.results").tag("method", "shipOrder").tag("outcome", "exception")
+                .tag("exception", "IllegalStateException").counter().count());
+        verify(heatmap).record(eq("com.doertutorial.OrderProcessor.shipOrder"), any(), eq(OrderProcessor.ORDER_PAID),
+                eq(OrderProcessor.ORDER_PAID), eq(true));
+    }
+
+    @Test
+    void record__should_report_status_set_before_inline_steps() throws Exception {
+        Task task = new Task();
+        task.setStatus(OrderProcessor.ORDER_PROCESSING_STARTED);
+        Order order = new Order();
+        when(context.getMethod()).thenReturn(OrderProcessor.class.getMethod("reserveGoods", Task.class, Order.class));
+        when(context.getParameters()).thenReturn(new Object[]{task, order});
+        when(inlineContext.getMethod()).thenReturn(OrderProcessor.class.getMethod("reportNoGoodsForOrder", Task.class, Order.class));
+        when(inlineContext.getParameters()).thenReturn(new Object[]{task, order});
+        when(inlineContext.proceed()).thenAnswer(invocation -> {
+            task.setStatus(OrderProcessor.REJECTED_NO_GOODS);
+            return null;
+        });
+        when(context.proceed()).thenAnswer(invocation -> {
+            task.setStatus(OrderProcessor.NO_GOODS);
+            return interceptor.record(inlineContext);
+        });
+
+        interceptor.record(context);
+
+        verify(heatmap).record(eq("com.doertutorial.OrderProcessor.reserveGoods"), any(),
+                eq(OrderProcessor.ORDER_PROCESSING_STARTED), eq(OrderProcessor.NO_GOODS), eq(false));
+        verify(heatmap).record(eq("com.doertutorial.OrderProcessor.reportNoGoodsForOrder"), any(),
+                eq(OrderProcessor.NO_GOODS), eq(OrderProcessor.REJECTED_NO_GOODS), eq(false));
+    }
+
+    @Test
+    void record__should_skip_methods_that_are_not_steps() throws Exception {
+        when(context.getMethod()).thenReturn(OrderProcessor.class.getMethod("saveNewOrders", List.class));
+        when(context.proceed()).thenThrow(new SQLException("duplicate key"));
+
+        assertThrows(SQLException.class, () -> interceptor.record(context));
+
+        assertEquals(0, registry.getMeters().size());
+        verifyNoInteractions(heatmap);
+    }
+}
@@ -0,0 +1,132 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TaskLogPartitionsTest {
+
+    static final LocalDate TODAY = LocalDate.of(2026, 10, 16);
+
+    @Mock
+    TaskDao taskDao;
+
+    @Test
+    void partitionDay__should_parse_daily_partitions_only() {
+        assertEquals(TODAY, TaskLogPartitions.partitionDay(TaskLogPartitions.partitionName(TODAY)));
+        assertEquals("task_logs_p20261016", TaskLogPartitions.partitionName(TODAY));
+        assertNull(TaskLogPartitions.partitionDay("task_logs_default"));
+        assertNull(TaskLogPartitions.partitionDay("task_logs_pxyz"));
+    }
+
+    @Test
+    void partitionsToCreate__should_continue_after_last_partition() {
+        List<LocalDate> days = TaskLogPartitions.partitionsToCreate(
+                List.of("task_logs_default", "task_logs_p20261015", "task_logs_p20261017"), TODAY, 3, Set.of());
+
+        assertEquals(List.of(LocalDate.of(2026, 10, 18), LocalDate.of(2026, 10, 19)), days);
+    }
+
+    @Test
+    void partitionsToCreate__should_skip_past_days() {
+        List<LocalDate> days = TaskLogPartitions.partitionsToCreate(List.of("task_logs_p20261001"), TODAY, 1, Set.of());
+
+        assertEquals(List.of(TODAY, TODAY.plusDays(1)), days);
+    }
+
+    @Test
+    void partitionsToCreate__should_skip_days_in_default_partition() {
+        List<LocalDate> days = TaskLogPartitions.partitionsToCreate(
+                List.of("task_logs_p20261010"), TODAY, 2, Set.of(TODAY, TODAY.minusDays(1)));
+
+        assertEquals(List.of(TODAY.plusDays(1), TODAY.plusDays(2)), days);
+    }
+
+    @Test
+    void maintainPartitions__should_drop_when_create_fails() throws SQLException {
+        TaskLogPartitions partitions = partitions();
+        when(taskDao.tryLockTaskLogPartitions()).thenReturn(true);
+        when(taskDao.findDefaultTaskLogDays()).thenReturn(Set.of());
+        when(taskDao.findTaskLogPartitions()).thenReturn(List.of("task_logs_p20000101"));
+        doThrow(new SQLException("boom")).when(taskDao).createTaskLogPartition(anyString(), any(), anyBoolean());
+
+        partitions.maintainPartitions();
+
+        verify(taskDao).dropTaskLogPartition("task_logs_p20000101");
+    }
+
+    @Test
+    void partitionsToDrop__should_drop_days_before_oldest_kept() {
+        List<String> names = TaskLogPartitions.partitionsToDrop(
+                List.of("task_logs_default", "task_logs_p20260915", "task_logs_p20260916", "task_logs_p20260917"),
+                LocalDate.of(2026, 9, 16));
+
+        assertEquals(List.of("task_logs_p20260915"), names);
+    }
+
+    @Test
+    void maintainPartitions__should_index_partitions_when_drop_fails() throws SQLException {
+        TaskLogPartitions partitions = partitions();
+        when(taskDao.tryLockTaskLogPartitions()).thenReturn(true);
+        when(taskDao.findDefaultTaskLogDays()).thenReturn(Set.of());
+        when(taskDao.findTaskLogPartitions()).thenReturn(List.of("task_logs_p20000101"));
+        doThrow(new SQLException("boom")).when(taskDao).dropTaskLogPartition(anyString());
+
+        partitions.maintainPartitions();
+
+        verify(taskDao).indexTaskLogPartitions();
+    }
+
+    @Test
+    void moveDefaultRows__should_move_kept_days_only() throws SQLException {
+        TaskLogPartitions partitions = partitions();
+        when(taskDao.tryLockTaskLogPartitions()).thenReturn(true);
+        when(taskDao.findDefaultTaskLogDays()).thenReturn(Set.of(TODAY.minusDays(31), TODAY.minusDays(30), TODAY));
+
+        partitions.moveDefaultRows(TODAY);
+
+        verify(taskDao).moveDefaultTaskLogs("task_logs_p20260916", TODAY.minusDays(30), false);
+        verify(taskDao).moveDefaultTaskLogs("task_logs_p20261016", TODAY, false);
+        verify(taskDao, never()).moveDefaultTaskLogs(anyString(), eq(TODAY.minusDays(31)), anyBoolean());
+    }
+
+    @Test
+    void dropPartitions__should_delete_default_rows_before_oldest_kept() throws SQLException {
+        TaskLogPartitions partitions = partitions();
+        when(taskDao.tryLockTaskLogPartitions()).thenReturn(true);
+        when(taskDao.findTaskLogPartitions()).thenReturn(List.of("task_logs_default", "task_logs_p20261016"));
+
+        partitions.dropPartitions(TODAY);
+
+        verify(taskDao).deleteDefaultTaskLogs(LocalDate.of(2026, 9, 16));
+        verify(taskDao, never()).dropTaskLogPartition(anyString());
+    }
+
+    private TaskLogPartitions partitions() {
+        TaskLogPartitions partitions = new TaskLogPartitions();
+        partitions.enabled = true;
+        partitions.retention = Duration.ofDays(30);
+        partitions.partitionsAhead = 1;
+        partitions.taskDao = taskDao;
+        return partitions;
+    }
+}
@@ -0,0 +1,56 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TaskNotificationsTest {
+
+    @Mock
+    DoerService doerService;
+    @Mock
+    OrderCache orderCache;
+
+    @InjectMocks
+    TaskNotifications taskNotifications;
+
+    @Test
+    void onNotification__should_reload_listed_tasks() {
+        taskNotifications.onNotification("doertutorial-other|1001,1002");
+
+        verify(doerService).triggerTaskReloadFromDb(1001L);
+        verify(doerService).triggerTaskReloadFromDb(1002L);
+    }
+
+    @Test
+    void onNotification__should_drop_cached_orders_before_reload() {
+        taskNotifications.onNotification("doertutorial-other|1001");
+
+        InOrder inOrder = inOrder(orderCache, doerService);
+        inOrder.verify(orderCache).invalidateTask(1001L);
+        inOrder.verify(doerService).triggerTaskReloadFromDb(1001L);
+    }
+
+    @Test
+    void onNotification__should_reload_queues_for_large_changes() {
+        taskNotifications.onNotification("doertutorial-other|*");
+
+        verify(doerService).triggerQueuesReloadFromDb();
+    }
+
+    @Test
+    void onNotification__should_skip_own_changes() {
+        taskNotifications.onNotification(PgListener.APPLICATION_NAME + "|1001");
+
+        verifyNoInteractions(doerService, orderCache);
+    }
+}
@@ -0,0 +1,112 @@
+package com.doertutorial;
+
+import com.doer.DoerService;
+import com.doer.Task;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TaskParkingTest {
+
+    @Mock
+    OutboundGuard guard;
+    @Mock
+    TaskDao taskDao;
+    @Mock
+    DoerService doerService;
+    @Mock
+    TransactionHooks transactionHooks;
+
+    @InjectMocks
+    TaskParking taskParking;
+
+    CircuitBreaker closed;
+    CircuitBreaker open;
+
+    @BeforeEach
+    void init() {
+        closed = new CircuitBreaker("closed", 1, Duration.ofMinutes(1), 1, System::nanoTime, transition -> {
+        });
+        open = new CircuitBreaker("open", 1, Duration.ofMinutes(1), 1, System::nanoTime, transition -> {
+        });
+        open.tryAcquire();
+        open.onFailure();
+        taskParking.registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void close() {
+        taskParking.shutdown();
+    }
+
+    @Test
+    void parkBusy__should_unpark_free_slots_after_commit() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 4, Duration.ofSeconds(1), 0.75, System::nanoTime);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transactionHooks).afterCommit(any());
+        when(guard.breaker(GuardedWarehouse.SERVICE)).thenReturn(closed);
+        when(guard.limiter(GuardedWarehouse.SERVICE)).thenReturn(limiter);
+        when(taskDao.unparkTasks(TaskParking.parkedPrefix(GuardedWarehouse.SERVICE), 4)).thenReturn(1);
+        Task task = new Task();
+        task.setStatus(OrderProcessor.ORDER_PROCESSING_STARTED);
+
+        taskParking.parkBusy(task, GuardedWarehouse.SERVICE);
+
+        verify(doerService, timeout(1000)).triggerQueuesReloadFromDb();
+    }
+
+    @Test
+    void onSlotReleased__should_skip_without_busy_parked_tasks() {
+        taskParking.onSlotReleased(GuardedWarehouse.SERVICE);
+
+        verifyNoInteractions(taskDao, doerService);
+    }
+
+    @Test
+    void checkBreakers__should_unpark_one_batch_of_free_slots() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 4, Duration.ofSeconds(1), 0.75, System::nanoTime);
+        limiter.acquire(Duration.ZERO);
+        when(guard.breaker(GuardedWarehouse.SERVICE)).thenReturn(closed);
+        when(guard.breaker(GuardedBank.SERVICE)).thenReturn(open);
+        when(guard.limiter(GuardedWarehouse.SERVICE)).thenReturn(limiter);
+        when(taskDao.unparkTasks(TaskParking.parkedPrefix(GuardedWarehouse.SERVICE), 3)).thenReturn(3);
+
+        taskParking.checkBreakers();
+
+        verify(doerService).triggerQueuesReloadFromDb();
+        verify(taskDao, never()).unparkTasks(eq(TaskParking.parkedPrefix(GuardedBank.SERVICE)), anyInt());
+    }
+
+    @Test
+    void checkBreakers__should_not_reload_without_parked_tasks() throws Exception {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 4, Duration.ofSeconds(1), 0.75, System::nanoTime);
+        when(guard.breaker(GuardedWarehouse.SERVICE)).thenReturn(closed);
+        when(guard.breaker(GuardedBank.SERVICE)).thenReturn(open);
+        when(guard.limiter(GuardedWarehouse.SERVICE)).thenReturn(limiter);
+        when(taskDao.unparkTasks(TaskParking.parkedPrefix(GuardedWarehouse.SERVICE), 4)).thenReturn(0);
+
+        taskParking.checkBreakers();
+
+        verify(doerService, never()).triggerQueuesReloadFromDb();
+    }
+}
@@ -0,0 +1,50 @@
+package com.doertutorial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkflowGraphTest {
+
+    static final String DOT = """
+            digraph alg {
+              node [fontname="Helvetica,sans-Serif" fontsize=10];
+              m104 [label="payOrder" tooltip="com.doertutorial.OrderProcessor.payOrder" shape=box];
+              m105 [label="rejectOrder" tooltip="com.doertutorial.OrderProcessor.rejectOrder" shape=box];
+              s501 [label=" " tooltip="Goods reserved" shape=circle];
+              s503 [label=" " tooltip="Order paid" shape=circle];
+              s513 [label=" " tooltip="Payment failed" shape=circle];
+              n515 [label="❌" tooltip="null"];
+              s501 -> m104;
+              m104 -> s503;
+              m104 -> s513 [tooltip="[after retry] every 5m during 30m" style=dashed];
+              m105 -> n515;
+            }
+            """;
+
+    @Test
+    void parse__should_read_steps_statuses_and_end_nodes() {
+        WorkflowGraph graph = WorkflowGraph.parse(DOT);
+
+        assertEquals(List.of(
+                new WorkflowGraph.Node("m104", WorkflowGraph.Kind.STEP, "com.doertutorial.OrderProcessor.payOrder", "payOrder"),
+                new WorkflowGraph.Node("m105", WorkflowGraph.Kind.STEP, "com.doertutorial.OrderProcessor.rejectOrder", "rejectOrder"),
+                new WorkflowGraph.Node("s501", WorkflowGraph.Kind.STATUS, "Goods reserved", "Goods reserved"),
+                new WorkflowGraph.Node("s503", WorkflowGraph.Kind.STATUS, "Order paid", "Order paid"),
+                new WorkflowGraph.Node("s513", WorkflowGraph.Kind.STATUS, "Payment failed", "Payment failed"),
+                new WorkflowGraph.Node("n515", WorkflowGraph.Kind.END, null, null)), graph.nodes());
+    }
+
+    @Test
+    void parse__should_read_edges_with_retry_policy() {
+        WorkflowGraph graph = WorkflowGraph.parse(DOT);
+
+        assertEquals(List.of(
+                new WorkflowGraph.Edge("s501", "m104", null),
+                new WorkflowGraph.Edge("m104", "s503", null),
+                new WorkflowGraph.Edge("m104", "s513", "[after retry] every 5m during 30m"),
+                new WorkflowGraph.Edge("m105", "n515", null)), graph.edges());
+    }
+}
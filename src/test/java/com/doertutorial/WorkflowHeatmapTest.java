@@ -0,0 +1,136 @@
+package com.doertutorial;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WorkflowHeatmapTest {
+    static final String PAY_ORDER = "com.doertutorial.OrderProcessor.payOrder";
+    static final String REJECT_ORDER = "com.doertutorial.OrderProcessor.rejectOrder";
+
+    @Mock
+    QueueMetrics queueMetrics;
+
+    @InjectMocks
+    WorkflowHeatmap workflowHeatmap;
+
+    MockClock clock;
+    Timer timer;
+
+    @BeforeEach
+    void init() {
+        clock = new MockClock();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        timer = Timer.builder("doer.step").register(registry);
+        workflowHeatmap.registry = registry;
+        workflowHeatmap.window = Duration.ofMinutes(5);
+        workflowHeatmap.graph = WorkflowGraph.parse(WorkflowGraphTest.DOT);
+    }
+
+    @Test
+    void heatmap__should_overlay_steps_and_transitions() {
+        when(queueMetrics.depth(OrderProcessor.GOODS_RESERVED)).thenReturn(7.0);
+        when(queueMetrics.depth(OrderProcessor.ORDER_PAID)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.PAYMENT_FAILED)).thenReturn(0.0);
+        for (int i = 0; i < 8; i++) {
+            workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.ORDER_PAID, false);
+        }
+        workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.GOODS_RESERVED, true);
+        workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.GOODS_RESERVED, true);
+        workflowHeatmap.record(REJECT_ORDER, timer, OrderProcessor.RESERVATION_CANCELLED, null, false);
+
+        WorkflowHeatmap.Heatmap heatmap = workflowHeatmap.heatmap();
+
+        Map<String, WorkflowHeatmap.NodeStats> nodes = heatmap.nodes().stream()
+                .collect(Collectors.toMap(stats -> stats.node().id(), Function.identity()));
+        assertEquals(10, nodes.get("m104").count());
+        assertEquals(2, nodes.get("m104").errors());
+        assertEquals(0.2, nodes.get("m104").errorRate());
+        assertEquals(2.0, nodes.get("m104").perMinute());
+        assertEquals(8, nodes.get("s503").count());
+        assertEquals(7, nodes.get("s501").queueDepth());
+        assertEquals(1, nodes.get("n515").count());
+        Map<String, Long> edges = heatmap.edges().stream()
+                .collect(Collectors.toMap(stats -> stats.edge().from() + ">" + stats.edge().to(), WorkflowHeatmap.EdgeStats::count));
+        assertEquals(Map.of("s501>m104", 10L, "m104>s503", 8L, "m104>s513", 0L, "m105>n515", 1L), edges);
+    }
+
+    @Test
+    void heatmap__should_forget_executions_older_than_window() {
+        when(queueMetrics.depth(OrderProcessor.GOODS_RESERVED)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.ORDER_PAID)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.PAYMENT_FAILED)).thenReturn(0.0);
+        workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.ORDER_PAID, false);
+        clock.add(Duration.ofMinutes(3));
+        workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.ORDER_PAID, false);
+        clock.add(Duration.ofMinutes(3));
+
+        WorkflowHeatmap.NodeStats payOrder = workflowHeatmap.heatmap().nodes().get(0);
+
+        assertEquals(PAY_ORDER, payOrder.node().name());
+        assertEquals(1, payOrder.count());
+    }
+
+    @Test
+    void heatmap__should_render_json_and_svg() {
+        when(queueMetrics.depth(OrderProcessor.GOODS_RESERVED)).thenReturn(3.0);
+        when(queueMetrics.depth(OrderProcessor.ORDER_PAID)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.PAYMENT_FAILED)).thenReturn(0.0);
+        workflowHeatmap.record(PAY_ORDER, timer, OrderProcessor.GOODS_RESERVED, OrderProcessor.ORDER_PAID, false);
+        WorkflowHeatmap.Heatmap heatmap = workflowHeatmap.heatmap();
+
+        JsonObject json = heatmap.toJson();
+        String svg = HeatmapSvg.render(heatmap);
+
+        assertEquals("PT5M", json.getString("window"));
+        assertEquals(6, json.getJsonArray("nodes").size());
+        assertEquals(3, json.getJsonArray("nodes").getJsonObject(2).getInt("queueDepth"));
+        assertTrue(svg.startsWith("<svg "), svg);
+        assertTrue(svg.contains(">payOrder</text>"), svg);
+        assertTrue(svg.contains("Goods reserved (3)"), svg);
+    }
+
+    @Test
+    void heatmap__should_be_null_without_graph() {
+        workflowHeatmap.graph = null;
+
+        assertNull(workflowHeatmap.heatmap());
+    }
+
+    @Test
+    void ranks__should_place_nodes_by_distance_from_entry() {
+        when(queueMetrics.depth(OrderProcessor.GOODS_RESERVED)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.ORDER_PAID)).thenReturn(0.0);
+        when(queueMetrics.depth(OrderProcessor.PAYMENT_FAILED)).thenReturn(0.0);
+
+        Map<String, Integer> ranks = HeatmapSvg.ranks(workflowHeatmap.heatmap());
+
+        assertEquals(Map.of("s501", 0, "m104", 1, "s503", 2, "s513", 2, "m105", 0, "n515", 1), ranks);
+    }
+
+    @Test
+    void color__should_go_from_white_to_red() {
+        assertEquals("#ffffff", HeatmapSvg.color(0));
+        assertEquals("#dc3545", HeatmapSvg.color(1));
+        assertEquals("#dc3545", HeatmapSvg.color(3));
+    }
+}
@@ -0,0 +1,252 @@
+package it;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static it.Testbed.*;
+
+/**
+ * End-to-end measurements, skipped unless {@code -Dbenchmark=true}. Run one scenario at a time, e.g.:
+ * <pre>
+ * mvn verify -Dbenchmark=true -Dit.test=OrderProcessingBenchmarkITCase
+ * mvn verify -Dbenchmark=true -Dit.test=OrderProcessingBenchmarkITCase -Dtestbed.env.DOERTUTORIAL_INLINE_STEPS_ENABLED=false
+ * </pre>
+ * Latencies are taken from the database (orders.created/modified, task_logs), not from the client.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OrderProcessingBenchmarkITCase {
+    static final int ORDERS = Integer.getInteger("benchmark.orders", 200);
+
+    @BeforeEach
+    void init() throws Exception {
+        startTestbed();
+        WireMock.reset();
+    }
+
+    @Test
+    void submit_to_shipped_latency() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            ids.add(submitOrder("Alice", "a pen"));
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(300));
+
+        String sql = """
+                SELECT count(*),
+                       percentile_cont(0.5) WITHIN GROUP (ORDER BY extract(EPOCH FROM o.modified - o.created)) * 1000,
+                       percentile_cont(0.95) WITHIN GROUP (ORDER BY extract(EPOCH FROM o.modified - o.created)) * 1000,
+                       avg((SELECT count(*) FROM task_logs l WHERE l.task_id = o.task_id))
+                FROM orders o
+                WHERE o.id = ANY(?)
+                """;
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            try (ResultSet rs = pst.executeQuery()) {
+                rs.next();
+                System.out.printf("submit -> SHIPPED: orders=%d p50=%.1fms p95=%.1fms persisted steps/order=%.2f%n",
+                        rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4));
+            }
+        }
+    }
+
+    /**
+     * Time from order insert to the start of the first Doer step (startOrderProcessing, or reserveGoods with
+     * inline steps), while orders are submitted from several threads. It includes the commit and the read back
+     * of the task by {@code triggerTaskReloadFromDb}.
+     */
+    @Test
+    void submit_to_first_step_latency() throws Exception {
+        List<UUID> ids = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService clients = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < ORDERS; i++) {
+                clients.execute(() -> ids.add(submitOrder("Alice", "a pen")));
+            }
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(300));
+
+        String sql = """
+                SELECT count(*),
+                       percentile_cont(0.5) WITHIN GROUP (ORDER BY ms),
+                       percentile_cont(0.95) WITHIN GROUP (ORDER BY ms),
+                       percentile_cont(0.99) WITHIN GROUP (ORDER BY ms)
+                FROM (SELECT extract(EPOCH FROM l.created - l.duration_ms * INTERVAL '1 millisecond' - o.created) * 1000 AS ms
+                      FROM orders o
+                      CROSS JOIN LATERAL (SELECT created, duration_ms FROM task_logs
+                                          WHERE task_id = o.task_id ORDER BY created LIMIT 1) l
+                      WHERE o.id = ANY(?)) t
+                """;
+        try (PreparedStatement pst = con.prepareStatement(sql)) {
+            pst.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            try (ResultSet rs = pst.executeQuery()) {
+                rs.next();
+                System.out.printf("submit -> first step: orders=%d p50=%.2fms p95=%.2fms p99=%.2fms%n",
+                        rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4));
+            }
+        }
+    }
+
+    /**
+     * Compare e.g. {@code -Dtestbed.env.DOERTUTORIAL_OUTBOUND_VIRTUAL_THREADS=true} and
+     * {@code -Dtestbed.env.DOERTUTORIAL_OUTBOUND_BANKAPI_MAX_CONCURRENT=...}.
+     */
+    @Test
+    void throughput_with_500ms_bank_latency() {
+        stubFor(post("/bank/processPayment")
+                .willReturn(okJson("{\"transactionId\":\"mocked-transactionId\"}")
+                        .withFixedDelay(500)));
+
+        Instant start = Instant.now();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            ids.add(submitOrder("Alice", "a pen"));
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(600));
+        double seconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
+
+        System.out.printf("500ms bank: orders=%d duration=%.1fs throughput=%.1f orders/s%n",
+                ORDERS, seconds, ORDERS / seconds);
+    }
+
+    /**
+     * Run twice, without and with {@code -Dtestbed.env.DOERTUTORIAL_OUTBOUND_WAREHOUSE_BATCH_ENABLED=true
+     * -Dtestbed.env.DOERTUTORIAL_OUTBOUND_BANKAPI_BATCH_ENABLED=true}. Bulk calls cost about as much as single ones.
+     */
+    @Test
+    void throughput_with_200ms_partner_latency() {
+        stubFor(post("/warehouse/reserve")
+                .willReturn(okJson("{\"token\":\"mocked-token\"}").withFixedDelay(200)));
+        stubFor(post("/warehouse/reserve-batch")
+                .willReturn(okJson("[{{#each (jsonPath request.body '$') as |order|}}{{#unless @first}},{{/unless}}" +
+                        "{\"token\":\"mocked-token\"}{{/each}}]")
+                        .withTransformers("response-template")
+                        .withFixedDelay(250)));
+        stubFor(post("/bank/processPayment")
+                .willReturn(okJson("{\"transactionId\":\"mocked-transactionId\"}").withFixedDelay(200)));
+        stubFor(post("/bank/processPayments")
+                .willReturn(okJson("[{{#each (jsonPath request.body '$') as |order|}}{{#unless @first}},{{/unless}}" +
+                        "{\"transactionId\":\"mocked-transactionId\"}{{/each}}]")
+                        .withTransformers("response-template")
+                        .withFixedDelay(250)));
+
+        Instant start = Instant.now();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            ids.add(submitOrder("Alice", "a pen"));
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(600));
+        double seconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
+
+        System.out.printf("200ms partners: orders=%d duration=%.1fs throughput=%.1f orders/s%n",
+                ORDERS, seconds, ORDERS / seconds);
+    }
+
+    /**
+     * Warehouse answers slower than its latency threshold, so the adaptive limit should back off
+     * and the queue wait grow instead of timeouts.
+     */
+    @Test
+    void limiter_with_slow_warehouse() {
+        stubFor(post("/warehouse/reserve")
+                .willReturn(okJson("{\"token\":\"mocked-token\"}")
+                        .withUniformRandomDelay(800, 1600)));
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            ids.add(submitOrder("Alice", "a pen"));
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(600));
+
+        RestAssured.get("/q/metrics").then().statusCode(200).extract().asString().lines()
+                .filter(line -> line.startsWith("outbound_") && line.contains("warehouse"))
+                .forEach(System.out::println);
+    }
+
+    /**
+     * {@code GET /orders/{id}} from several clients: full responses, then revalidations with {@code If-None-Match}
+     * that should be answered with 304 without loading the task.
+     */
+    @Test
+    void get_order_requests_per_second() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(submitOrder("Alice", "a pen"));
+        }
+        waitForStatus(ids, "SHIPPED", Instant.now().plusSeconds(300));
+        List<String> etags = new ArrayList<>();
+        for (UUID id : ids) {
+            etags.add(RestAssured.get("/orders/" + id).then().statusCode(200).extract().header("ETag"));
+        }
+        int requests = ORDERS * 50;
+
+        for (boolean conditional : new boolean[]{false, true}) {
+            Instant start = Instant.now();
+            try (ExecutorService clients = Executors.newFixedThreadPool(8)) {
+                for (int i = 0; i < requests; i++) {
+                    int n = i % ids.size();
+                    clients.execute(() -> {
+                        if (conditional) {
+                            RestAssured.with().header("If-None-Match", etags.get(n))
+                                    .get("/orders/" + ids.get(n)).then().statusCode(304);
+                        } else {
+                            RestAssured.get("/orders/" + ids.get(n)).then().statusCode(200);
+                        }
+                    });
+                }
+            }
+            double seconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
+            System.out.printf("GET /orders/{id} %s: requests=%d duration=%.1fs throughput=%.0f requests/s%n",
+                    conditional ? "If-None-Match" : "full", requests, seconds, requests / seconds);
+        }
+    }
+
+    static UUID submitOrder(String customer, String items) {
+        String location = RestAssured.with()
+                .redirects()
+                .follow(false)
+                .formParam("customer", customer)
+                .formParam("items", items)
+                .post("/orders/submit")
+                .then()
+                .statusCode(303)
+                .extract()
+                .header("Location");
+        return UUID.fromString(location.substring(location.lastIndexOf('/') + 1));
+    }
+
+    static void waitForStatus(List<UUID> ids, String status, Instant deadline) {
+        String sql = "SELECT count(*) FROM orders WHERE id = ANY(?) AND status = ?";
+        long done = waitForConditionOrDeadline(() -> {
+            try (PreparedStatement pst = con.prepareStatement(sql)) {
+                pst.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+                pst.setString(2, status);
+                try (ResultSet rs = pst.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }, count -> count == ids.size(), deadline);
+        if (done != ids.size()) {
+            throw new AssertionError(done + " of " + ids.size() + " orders reached " + status);
+        }
+    }
+}
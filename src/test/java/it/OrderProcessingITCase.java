@@ -2,10 +2,16 @@ package it;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
 import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
@@ -17,6 +23,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static it.Testbed.*;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class OrderProcessingITCase {
     @BeforeEach
@@ -62,6 +69,196 @@ public class OrderProcessingITCase {
                 .withRequestBody(matchingJsonPath("items", WireMock.equalTo("a pen"))));
     }
 
+    @Test
+    void listing_should_page_by_created_and_id() {
+        String customer = "Lister " + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            RestAssured.with()
+                    .redirects()
+                    .follow(false)
+                    .formParam("customer", customer)
+                    .formParam("items", "item " + i)
+                    .post("/orders/submit")
+                    .then()
+                    .statusCode(303);
+        }
+
+        List<JsonObject> firstPage = listOrders(customer, null, 2);
+        JsonObject last = firstPage.get(1);
+        List<JsonObject> secondPage = listOrders(customer, last.getString("created") + "," + last.getString("id"), 2);
+
+        assertEquals(List.of("item 0", "item 1"), firstPage.stream().map(o -> o.getString("items")).toList());
+        assertEquals(List.of("item 2"), secondPage.stream().map(o -> o.getString("items")).toList());
+    }
+
+    @Test
+    void stats_should_count_customer_orders_by_status() {
+        String customer = "Counted " + UUID.randomUUID();
+        String location = RestAssured.with()
+                .redirects()
+                .follow(false)
+                .formParam("customer", customer)
+                .formParam("items", "a pen")
+                .post("/orders/submit")
+                .then()
+                .statusCode(303)
+                .extract()
+                .header("Location");
+
+        waitForConditionOrDeadline(
+                () -> RestAssured.get(location).then(),
+                r -> r.extract().jsonPath().getString("task.status") == null,
+                Instant.now().plusSeconds(60)
+        ).statusCode(200)
+                .body("order.status", equalTo("SHIPPED"));
+
+        RestAssured.with()
+                .queryParam("customer", customer)
+                .get("/orders/stats")
+                .then()
+                .statusCode(200)
+                .body("customer", equalTo(customer))
+                .body("statuses.NEW", equalTo(0))
+                .body("statuses.PROCESSING", equalTo(0))
+                .body("statuses.SHIPPED", equalTo(1))
+                .body("total", equalTo(1));
+    }
+
+    @Test
+    void imported_order_should_be_processed_and_exported() {
+        UUID id = UUID.randomUUID();
+        String line = "{\"id\":\"" + id + "\",\"created\":\"2026-01-01T00:00:00+00:00\",\"status\":\"NEW\"," +
+                "\"task_id\":1,\"json_data\":{\"customer\":\"Importer\",\"items\":\"a pen\"}}\n";
+
+        RestAssured.with()
+                .contentType("application/x-ndjson")
+                .queryParam("createTasks", true)
+                .body(line + line)
+                .post("/orders/import")
+                .then()
+                .statusCode(200)
+                .body("read", equalTo(2))
+                .body("imported", equalTo(1))
+                .body("tasksCreated", equalTo(1));
+
+        waitForConditionOrDeadline(
+                () -> RestAssured.get("/orders/" + id).then(),
+                r -> "SHIPPED".equals(r.extract().jsonPath().getString("order.status")),
+                Instant.now().plusSeconds(60)
+        ).statusCode(200)
+                .body("order.customer", equalTo("Importer"));
+
+        String csv = RestAssured.with()
+                .accept("text/csv")
+                .get("/orders/export")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        assertEquals("id,created,modified,task_id,status,json_data", csv.lines().findFirst().orElseThrow());
+        assertEquals(1, csv.lines().filter(l -> l.startsWith(id + ",") && l.contains(",SHIPPED,")).count());
+    }
+
+    @Test
+    void imported_rejected_order_should_be_cancelled_not_paid() {
+        UUID id = UUID.randomUUID();
+        String customer = "Rejected importer " + id;
+        String line = "{\"id\":\"" + id + "\",\"status\":\"PROCESSING\",\"json_data\":{\"customer\":\"" + customer +
+                "\",\"items\":\"a pen\",\"reservation_token\":\"imported-token-" + id + "\"," +
+                "\"reject_reason\":\"Payment not processed.\"}}\n";
+
+        importOrders(line);
+
+        waitForConditionOrDeadline(
+                () -> RestAssured.get("/orders/" + id).then(),
+                r -> "REJECTED".equals(r.extract().jsonPath().getString("order.status")),
+                Instant.now().plusSeconds(60)
+        ).statusCode(200)
+                .body("order.rejectReason", equalTo("Payment not processed."));
+
+        verify(postRequestedFor(urlPathMatching("/warehouse/cancel"))
+                .withRequestBody(matchingJsonPath("token", WireMock.equalTo("imported-token-" + id))));
+        verify(0, postRequestedFor(urlPathMatching("/bank/processPayment"))
+                .withRequestBody(matchingJsonPath("customer", WireMock.equalTo(customer))));
+        verify(0, postRequestedFor(urlPathMatching("/warehouse/ship"))
+                .withRequestBody(matchingJsonPath("customer", WireMock.equalTo(customer))));
+    }
+
+    @Test
+    void imported_shipped_order_should_be_finished_not_shipped_again() {
+        UUID id = UUID.randomUUID();
+        String customer = "Shipped importer " + id;
+        String line = "{\"id\":\"" + id + "\",\"status\":\"PROCESSING\",\"json_data\":{\"customer\":\"" + customer +
+                "\",\"items\":\"a pen\",\"reservation_token\":\"imported-token\"," +
+                "\"payment_transaction_id\":\"imported-payment\",\"delivery_tracking_id\":\"imported-tracking\"}}\n";
+
+        importOrders(line);
+
+        waitForConditionOrDeadline(
+                () -> RestAssured.get("/orders/" + id).then(),
+                r -> "SHIPPED".equals(r.extract().jsonPath().getString("order.status")),
+                Instant.now().plusSeconds(60)
+        ).statusCode(200)
+                .body("order.deliveryTrackingId", equalTo("imported-tracking"));
+
+        verify(0, postRequestedFor(urlPathMatching("/warehouse/ship"))
+                .withRequestBody(matchingJsonPath("customer", WireMock.equalTo(customer))));
+        verify(0, postRequestedFor(urlPathMatching("/bank/processPayment"))
+                .withRequestBody(matchingJsonPath("customer", WireMock.equalTo(customer))));
+    }
+
+    static void importOrders(String ndjson) {
+        RestAssured.with()
+                .contentType("application/x-ndjson")
+                .queryParam("createTasks", true)
+                .body(ndjson)
+                .post("/orders/import")
+                .then()
+                .statusCode(200)
+                .body("tasksCreated", equalTo(1));
+    }
+
+    static List<JsonObject> listOrders(String customer, String after, int limit) {
+        RequestSpecification request = RestAssured.with()
+                .queryParam("customer", customer)
+                .queryParam("limit", limit);
+        if (after != null) {
+            request.queryParam("after", after);
+        }
+        String body = request.get("/orders")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract()
+                .asString();
+        return body.lines()
+                .map(line -> Json.createReader(new StringReader(line)).readObject())
+                .toList();
+    }
+
+    @Test
+    void long_poll_should_return_when_order_is_shipped() {
+        String location = RestAssured.with()
+                .redirects()
+                .follow(false)
+                .formParam("customer", "Alice")
+                .formParam("items", "a pen")
+                .post("/orders/submit")
+                .then()
+                .statusCode(303)
+                .extract()
+                .header("Location");
+
+        RestAssured.with()
+                .accept("application/json")
+                .queryParam("waitFor", "SHIPPED|REJECTED")
+                .queryParam("timeout", 60)
+                .get(location + "/events")
+                .then()
+                .statusCode(200)
+                .body("status", equalTo("SHIPPED"));
+    }
+
     @Test
     void failed_shipping_should_cancel_payment_and_booking() {
         stubFor(post("/warehouse/ship")
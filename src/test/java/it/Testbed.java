@@ -77,6 +77,10 @@ public class Testbed {
             env.put("QUARKUS_DATASOURCE_JDBC_URL", jdbcUrl);
             env.put("QUARKUS_DATASOURCE_USERNAME", "quarkus");
             env.put("QUARKUS_DATASOURCE_PASSWORD", "quarkus");
+            // e.g. -Dtestbed.env.DOERTUTORIAL_INLINE_STEPS_ENABLED=false
+            System.getProperties().stringPropertyNames().stream()
+                    .filter(name -> name.startsWith("testbed.env."))
+                    .forEach(name -> env.put(name.substring("testbed.env.".length()), System.getProperty(name)));
             app = builder.start();
             waitTextInFile(out, "Profile prod activated", Duration.ofMinutes(1));
             RestAssured.baseURI = "http://localhost";
@@ -0,0 +1,4 @@
+-- The stats query without counters: grows with the orders table.
+SELECT status, count(*)
+FROM (SELECT status FROM orders UNION ALL SELECT status FROM orders_archive) o
+GROUP BY status;
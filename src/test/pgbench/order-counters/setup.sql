@@ -0,0 +1,27 @@
+-- Fills orders with 10M rows to compare GET /orders/stats served from order_counters with a GROUP BY scan,
+-- and to measure what the counting triggers add to order writes. Run against a migrated database:
+--
+--   psql -h localhost -p 9432 -U quarkus quarkus -f setup.sql
+--   pgbench -h localhost -p 9432 -U quarkus -n -c 4 -j 2 -T 60 -f group-by.sql quarkus
+--   pgbench -h localhost -p 9432 -U quarkus -n -c 4 -j 2 -T 60 -f stats.sql quarkus
+--   pgbench -h localhost -p 9432 -U quarkus -n -c 16 -j 4 -T 120 -f update.sql quarkus
+--
+-- For the write overhead run update.sql again after
+--   ALTER TABLE orders DISABLE TRIGGER orders_updated_count;
+-- and compare tps; re-enable it and reconcile (OrderCounters) afterwards. With -c 16 all clients hit
+-- the same few (customer, status) totals, so lock waits on order_counters show up in pg_stat_activity
+-- as wait_event 'transactionid' if the striping does not spread them.
+TRUNCATE orders, orders_archive, order_counters;
+
+INSERT INTO orders (id, created, modified, task_id, status, json_data)
+SELECT md5(n::text)::uuid,
+       now() - (n || ' seconds')::interval,
+       now() - (n || ' seconds')::interval,
+       n,
+       (ARRAY ['NEW', 'PROCESSING', 'SHIPPED', 'REJECTED'])[1 + n % 4],
+       jsonb_build_object(
+               'customer', 'customer-' || (n % 100000),
+               'items', 'item-' || (n % 997) || ', item-' || (n % 991))
+FROM generate_series(1, 10000000) AS n;
+
+VACUUM ANALYZE orders, order_counters;
@@ -0,0 +1,4 @@
+-- OrderDao.countOrdersByStatus for all customers, then for one: at most 4 statuses x 16 stripes each.
+\set n random(1, 10000000)
+SELECT status, sum(count) FROM order_counters WHERE customer = '' GROUP BY status;
+SELECT status, sum(count) FROM order_counters WHERE customer = 'customer-' || (:n % 100000) GROUP BY status;
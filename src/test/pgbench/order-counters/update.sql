@@ -0,0 +1,6 @@
+-- A status transition as OrderDao.updateChangedFields writes it, counted by orders_updated_count.
+\set n random(1, 10000000)
+UPDATE orders
+SET modified = now(),
+    status   = (ARRAY ['NEW', 'PROCESSING', 'SHIPPED', 'REJECTED'])[1 + (:n + 1) % 4]
+WHERE id = md5(:n::text)::uuid;
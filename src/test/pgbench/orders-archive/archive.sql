@@ -0,0 +1,23 @@
+-- OrderDao.archiveFinishedOrders in batches of 100k until all finished orders older than a day are archived.
+-- Note the time it takes: it is the archiver backlog for a table that was never archived.
+--
+--   psql -h localhost -p 9432 -U quarkus quarkus -f archive.sql
+DO
+$$
+    DECLARE
+        batch INTEGER;
+    BEGIN
+        LOOP
+            WITH moved AS (DELETE FROM orders WHERE id IN (
+                SELECT id FROM orders WHERE status IN ('SHIPPED', 'REJECTED')
+                AND modified < now() - INTERVAL '1 day'
+                ORDER BY modified LIMIT 100000 FOR UPDATE SKIP LOCKED)
+                RETURNING id, created, modified, task_id, status, json_data)
+            INSERT INTO orders_archive (id, created, modified, task_id, status, json_data)
+            SELECT id, created, modified, task_id, status, json_data FROM moved;
+            GET DIAGNOSTICS batch = ROW_COUNT;
+            EXIT WHEN batch = 0;
+            COMMIT;
+        END LOOP;
+    END
+$$;
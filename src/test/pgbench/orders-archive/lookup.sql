@@ -0,0 +1,6 @@
+-- OrderDao.findOrderById on an OrderCache miss. Ids 1..1M are the orders in progress.
+\set n random(1, 50000000)
+SELECT id, created, modified, task_id, status, json_data FROM orders WHERE id = md5(:n::text)::uuid
+UNION ALL
+SELECT id, created, modified, task_id, status, json_data FROM orders_archive WHERE id = md5(:n::text)::uuid
+LIMIT 1;
@@ -0,0 +1,30 @@
+-- Fills orders with 50M rows, one per second of the last ~19 months, all but the newest 1M shipped or rejected.
+-- Run against a migrated database for the "before" numbers:
+--
+--   psql -h localhost -p 9432 -U quarkus quarkus -f setup.sql
+--   psql -h localhost -p 9432 -U quarkus quarkus -c "SELECT pg_size_pretty(pg_table_size('orders')), pg_size_pretty(pg_indexes_size('orders'))"
+--   pgbench -h localhost -p 9432 -U quarkus -n -c 16 -j 4 -T 120 -l --log-prefix=before -f lookup.sql quarkus
+--
+-- Then archive with archive.sql, compact the hot table (VACUUM FULL ANALYZE orders; in steady state the archiver
+-- keeps it small from the start), check the sizes again and rerun pgbench with --log-prefix=after.
+-- lookup.sql picks ids over all 50M rows, so after archiving most lookups go through both tables.
+-- p99 latency in microseconds from the per-transaction logs (3rd column):
+--
+--   cat before.* | awk '{print $3}' | sort -n | awk '{a[NR]=$1} END {print "p50", a[int(NR*0.5)], "p99", a[int(NR*0.99)]}'
+TRUNCATE orders, orders_archive;
+
+INSERT INTO orders (id, created, modified, task_id, status, json_data)
+SELECT md5(n::text)::uuid,
+       now() - (n || ' seconds')::interval,
+       now() - (n || ' seconds')::interval,
+       n,
+       CASE WHEN n <= 1000000 THEN (ARRAY ['NEW', 'PROCESSING'])[1 + n % 2]
+            ELSE (ARRAY ['SHIPPED', 'SHIPPED', 'SHIPPED', 'REJECTED'])[1 + n % 4] END,
+       jsonb_build_object(
+               'customer', 'customer-' || (n % 100000),
+               'items', 'item-' || (n % 997) || ', item-' || (n % 991),
+               'reservation_token', md5('r' || n),
+               'payment_transaction_id', md5('p' || n))
+FROM generate_series(1, 50000000) AS n;
+
+VACUUM ANALYZE orders;
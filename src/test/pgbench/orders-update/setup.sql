@@ -0,0 +1,24 @@
+-- Fills orders with 10M rows for update throughput measurements. Run against a database migrated up to
+-- V2025.01.19.3 (GIN index on json_data) for the "before" numbers:
+--
+--   psql -h localhost -p 9432 -U quarkus quarkus -f setup.sql
+--   pgbench -h localhost -p 9432 -U quarkus -n -c 16 -j 4 -T 120 -f update.sql quarkus
+--
+-- Then apply V2026.10.16.0__promote_order_customer_column.sql, VACUUM ANALYZE orders, and run pgbench again.
+-- Compare tps, and pg_stat_user_tables.n_tup_hot_upd and pg_relation_size of the orders indexes.
+TRUNCATE orders;
+
+INSERT INTO orders (id, created, modified, task_id, status, json_data)
+SELECT md5(n::text)::uuid,
+       now() - (n || ' seconds')::interval,
+       now() - (n || ' seconds')::interval,
+       n,
+       (ARRAY ['NEW', 'PROCESSING', 'SHIPPED', 'REJECTED'])[1 + n % 4],
+       jsonb_build_object(
+               'customer', 'customer-' || (n % 100000),
+               'items', 'item-' || (n % 997) || ', item-' || (n % 991),
+               'reservation_token', md5('r' || n),
+               'payment_transaction_id', md5('p' || n))
+FROM generate_series(1, 10000000) AS n;
+
+VACUUM ANALYZE orders;
@@ -0,0 +1,8 @@
+-- One Doer step worth of OrderDao.updateChangedFields: a status change plus one json_data key.
+\set n random(1, 10000000)
+UPDATE orders
+SET modified  = now(),
+    status    = 'PROCESSING',
+    json_data = (coalesce(json_data, '{}'::JSONB) - '{reject_reason}'::TEXT[]) || jsonb_build_object('delivery_tracking_id', md5('d' || :n))
+WHERE id = md5(:n::text)::uuid
+RETURNING modified;